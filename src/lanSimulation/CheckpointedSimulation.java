@@ -0,0 +1,584 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A <em>CheckpointedSimulation</em> runs a list of jobs on a <em>Network</em>,
+ * writing the report to "report.txt" in its directory, and checkpoints its
+ * state every #checkpointInterval jobs so that it can be resumed (see #resume)
+ * after the virtual machine died.
+ * <p>
+ * A checkpoint holds the topology and node state, the next job to run, the
+ * accounting counters and the length of the report. Jobs run one at a time and
+ * a request completes before the next starts, so no packet is in flight at a
+ * checkpoint. The jobs are written once, when the simulation starts; the
+ * topology is copied only when it changed since the previous checkpoint. The
+ * simulation thread only copies the state; writing and syncing the files
+ * happens on a background thread, and a checkpoint that falls due while the
+ * previous one is still being written is skipped.
+ * </p>
+ */
+public class CheckpointedSimulation {
+	/**
+	 * The kind of a job in which a workstation prints a document on a printer.
+	 */
+	public static final byte PRINT = 1;
+	/**
+	 * The kind of a job in which a broadcast is requested.
+	 */
+	public static final byte BROADCAST = 2;
+	/**
+	 * The kind of a job in which a node fails.
+	 */
+	public static final byte FAIL = 3;
+	/**
+	 * The kind of a job in which a node is restored.
+	 */
+	public static final byte RESTORE = 4;
+	private static final int MAGIC = 0x4c414e4b; // "LANK"
+	private static final String JOBS = "jobs.dat", REPORT = "report.txt";
+
+	/**
+	 * A <em>Job</em> is one step of the simulation: a print request, a broadcast,
+	 * or a node failing or being restored.
+	 */
+	public static class Job {
+		/**
+		 * Holds the kind of the job: #PRINT, #BROADCAST, #FAIL or #RESTORE.
+		 */
+		public final byte kind_;
+		/**
+		 * Holds the name of the requesting workstation, or of the node failing or
+		 * being restored; empty for a broadcast.
+		 */
+		public final String node_;
+		/**
+		 * Holds the document to print; empty unless printing.
+		 */
+		public final String document_;
+		/**
+		 * Holds the name of the printer to print on; empty unless printing.
+		 */
+		public final String printer_;
+
+		private Job(byte kind, String node, String document, String printer) {
+			kind_ = kind;
+			node_ = node;
+			document_ = document;
+			printer_ = printer;
+		}
+
+		/**
+		 * Answer a job in which #workstation prints #document on #printer.
+		 */
+		public static Job print(String workstation, String document, String printer) {
+			return new Job(PRINT, workstation, document, printer);
+		}
+
+		/**
+		 * Answer a job in which a broadcast is requested.
+		 */
+		public static Job broadcast() {
+			return new Job(BROADCAST, "", "", "");
+		}
+
+		/**
+		 * Answer a job in which the node named #node fails.
+		 */
+		public static Job fail(String node) {
+			return new Job(FAIL, node, "", "");
+		}
+
+		/**
+		 * Answer a job in which the node named #node is restored.
+		 */
+		public static Job restore(String node) {
+			return new Job(RESTORE, node, "", "");
+		}
+	}
+
+	/**
+	 * Holds the directory the jobs, report and checkpoints are written in.
+	 */
+	private final File directory_;
+	/**
+	 * Holds the network the jobs run on.
+	 */
+	private final Network network_;
+	/**
+	 * Holds all jobs of the simulation, in order.
+	 */
+	private final List<Job> jobs_;
+	/**
+	 * Holds the number of jobs between checkpoints.
+	 */
+	private final int checkpointInterval_;
+	/**
+	 * Holds the report of the simulation.
+	 */
+	private final ReportFile report_;
+	/**
+	 * Holds the background thread writing the checkpoints.
+	 */
+	private final ExecutorService writer_;
+	/**
+	 * Holds the checkpoint being written, or null.
+	 */
+	private Future<?> writing_ = null;
+	/**
+	 * Holds the index in #jobs_ of the next job to run.
+	 */
+	private int nextJob_;
+	/**
+	 * Hold the accounting counters: the print jobs that printed and that did not,
+	 * and the broadcasts.
+	 */
+	private long printed_, notPrinted_, broadcasts_;
+	/**
+	 * Holds the sequence number of the next checkpoint.
+	 */
+	private int sequence_;
+	/**
+	 * Holds the topology version of the network at the last topology written,
+	 * or -1 before the first.
+	 */
+	private long topologyVersion_ = -1;
+	/**
+	 * Holds the sequence number of the checkpoint the last topology was written
+	 * with, or -1 before the first.
+	 */
+	private int topologySequence_ = -1;
+
+	private CheckpointedSimulation(File directory, Network network, List<Job> jobs, int checkpointInterval,
+			ReportFile report) {
+		assert checkpointInterval > 0;
+		directory_ = directory;
+		network_ = network;
+		jobs_ = jobs;
+		checkpointInterval_ = checkpointInterval;
+		report_ = report;
+		writer_ = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "CheckpointedSimulation writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Start a simulation of #jobs on #network in #directory. The checkpoints,
+	 * topologies and report of a simulation run before in #directory are
+	 * removed, so that #resume never picks up one of its checkpoints.
+	 * <p>
+	 * <strong>Precondition:</strong> network.consistentNetwork() &
+	 * directory.isDirectory() & (checkpointInterval > 0);
+	 * </p>
+	 */
+	public static CheckpointedSimulation start(File directory, Network network, List<Job> jobs,
+			int checkpointInterval) throws IOException {
+		assert network.consistentNetwork() & directory.isDirectory() & (checkpointInterval > 0);
+		for (File each : directory.listFiles()) {
+			if (isSimulationFile(each.getName()) && !each.delete()) {
+				throw new IOException("Cannot remove '" + each + "' of an earlier simulation");
+			}
+		}
+		File jobsFile = new File(directory, JOBS), temporary = new File(directory, JOBS + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+			out.writeInt(jobs.size());
+			for (Job job : jobs) {
+				out.writeByte(job.kind_);
+				TraceRecorder.writeString(out, job.node_);
+				TraceRecorder.writeString(out, job.document_);
+				TraceRecorder.writeString(out, job.printer_);
+			}
+		}
+		Files.move(temporary.toPath(), jobsFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		CheckpointedSimulation result = new CheckpointedSimulation(directory, network, jobs, checkpointInterval,
+				new ReportFile(new File(directory, REPORT), 0));
+		result.checkpoint();
+		return result;
+	}
+
+	/**
+	 * Resume the simulation in #directory from its latest checkpoint. The report
+	 * is cut back to what it was at that checkpoint.
+	 * <p>
+	 * <strong>Precondition:</strong> checkpointInterval > 0;
+	 * </p>
+	 */
+	public static CheckpointedSimulation resume(File directory, int checkpointInterval) throws IOException {
+		File checkpoint = latest(directory, "checkpoint-", ".ckpt");
+		if (checkpoint == null) {
+			throw new FileNotFoundException("No checkpoint in '" + directory + "'");
+		}
+		List<Job> jobs = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(new File(directory, JOBS))))) {
+			for (int i = in.readInt(); i > 0; i--) {
+				byte kind = in.readByte();
+				String node = TraceRecorder.readString(in), document = TraceRecorder.readString(in);
+				String printer = TraceRecorder.readString(in);
+				jobs.add(new Job(kind, node, document, printer));
+			}
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpoint)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a checkpoint: '" + checkpoint + "'");
+			}
+			int sequence = in.readInt(), topologySequence = in.readInt();
+			NetworkSnapshot snapshot;
+			try (DataInputStream topology = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(new File(directory, name("topology-", topologySequence, ".topo")))))) {
+				snapshot = NetworkSnapshot.readFrom(topology);
+			}
+			Network network = Network.fromSnapshot(snapshot);
+			int nextJob = in.readInt();
+			long printed = in.readLong(), notPrinted = in.readLong(), broadcasts = in.readLong();
+			long reportLength = in.readLong();
+
+			CheckpointedSimulation result = new CheckpointedSimulation(directory, network, jobs, checkpointInterval,
+					new ReportFile(new File(directory, REPORT), reportLength));
+			result.nextJob_ = nextJob;
+			result.printed_ = printed;
+			result.notPrinted_ = notPrinted;
+			result.broadcasts_ = broadcasts;
+			result.sequence_ = sequence + 1;
+			result.topologyVersion_ = network.topologyVersion();
+			result.topologySequence_ = topologySequence;
+			return result;
+		}
+	}
+
+	/**
+	 * Run all remaining jobs, take a last checkpoint and wait until it is
+	 * written.
+	 */
+	public void run() throws IOException {
+		run(jobs_.size());
+		finish();
+	}
+
+	/**
+	 * Run at most #count of the remaining jobs, checkpointing along the way.
+	 * 
+	 * @return Answer #true when no jobs remain and #false otherwise
+	 */
+	public boolean run(int count) throws IOException {
+		for (int i = 0; (i < count) && (nextJob_ < jobs_.size()); i++) {
+			runJob(jobs_.get(nextJob_));
+			nextJob_++;
+			if (nextJob_ % checkpointInterval_ == 0) {
+				checkpoint();
+			}
+		}
+		return nextJob_ == jobs_.size();
+	}
+
+	private void runJob(Job job) {
+		switch (job.kind_) {
+		case PRINT:
+			if (network_.hasWorkstation(job.node_)
+					&& network_.requestWorkstationPrintsDocument(job.node_, job.document_, job.printer_, report_)) {
+				printed_++;
+			} else {
+				notPrinted_++;
+			}
+			break;
+		case BROADCAST:
+			network_.requestBroadcast(report_);
+			broadcasts_++;
+			break;
+		case FAIL:
+			network_.fail(job.node_);
+			break;
+		case RESTORE:
+			network_.restore(job.node_);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Take a checkpoint, unless the previous one is still being written. The
+	 * state is copied here; the files are written on the background thread.
+	 */
+	private void checkpoint() throws IOException {
+		if (writing_ != null) {
+			if (!writing_.isDone()) {
+				return;
+			}
+			rethrow(writing_);
+		}
+		final int sequence = sequence_++;
+		final NetworkSnapshot snapshot;
+		if (network_.topologyVersion() != topologyVersion_) {
+			snapshot = network_.snapshot();
+			topologyVersion_ = network_.topologyVersion();
+			topologySequence_ = sequence;
+		} else {
+			snapshot = null;
+		}
+		final int topologySequence = topologySequence_, nextJob = nextJob_;
+		final long printed = printed_, notPrinted = notPrinted_, broadcasts = broadcasts_;
+		final long reportLength = report_.commit();
+
+		writing_ = writer_.submit(() -> {
+			if (snapshot != null) {
+				publish(name("topology-", sequence, ".topo"), out -> snapshot.writeOn(out));
+			}
+			report_.sync();
+			publish(name("checkpoint-", sequence, ".ckpt"), out -> {
+				out.writeInt(MAGIC);
+				out.writeInt(sequence);
+				out.writeInt(topologySequence);
+				out.writeInt(nextJob);
+				out.writeLong(printed);
+				out.writeLong(notPrinted);
+				out.writeLong(broadcasts);
+				out.writeLong(reportLength);
+			});
+			removeOlderThan(sequence, topologySequence);
+			return null;
+		});
+	}
+
+	/**
+	 * Take a last checkpoint, wait until it is written, stop the background
+	 * thread and close the report.
+	 */
+	public void finish() throws IOException {
+		halt();
+		writing_ = null;
+		checkpoint();
+		halt();
+		writer_.shutdown();
+		report_.close();
+	}
+
+	/**
+	 * Wait until the checkpoint being written, if any, is written, without taking
+	 * another; what ran since is lost, as if the virtual machine died.
+	 */
+	public void halt() throws IOException {
+		if (writing_ != null) {
+			try {
+				writing_.get();
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while writing a checkpoint");
+			} catch (ExecutionException exc) {
+				rethrow(writing_);
+			}
+		}
+	}
+
+	private static void rethrow(Future<?> writing) throws IOException {
+		try {
+			writing.get();
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException exc) {
+			if (exc.getCause() instanceof IOException) {
+				throw (IOException) exc.getCause();
+			}
+			throw new IOException("Checkpoint failed", exc.getCause());
+		}
+	}
+
+	private interface Contents {
+		void writeOn(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Write #contents to the file #name in the directory, atomically and
+	 * durably.
+	 */
+	private void publish(String name, Contents contents) throws IOException {
+		File file = new File(directory_, name), temporary = new File(directory_, name + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temporary);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+			contents.writeOn(out);
+			out.flush();
+			stream.getFD().sync();
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Remove the checkpoints before #sequence and the topologies before
+	 * #topologySequence.
+	 */
+	private void removeOlderThan(int sequence, int topologySequence) {
+		for (File each : directory_.listFiles()) {
+			String fname = each.getName();
+			if ((fname.startsWith("checkpoint-") && fname.endsWith(".ckpt") && (sequenceOf(fname) < sequence))
+					|| (fname.startsWith("topology-") && fname.endsWith(".topo")
+							&& (sequenceOf(fname) < topologySequence))) {
+				each.delete();
+			}
+		}
+	}
+
+	/**
+	 * Answer whether #fname names a file a simulation writes in its directory.
+	 */
+	private static boolean isSimulationFile(String fname) {
+		if (fname.endsWith(".tmp")) {
+			fname = fname.substring(0, fname.length() - 4);
+		}
+		return fname.equals(JOBS) || fname.equals(REPORT)
+				|| (fname.startsWith("checkpoint-") && fname.endsWith(".ckpt"))
+				|| (fname.startsWith("topology-") && fname.endsWith(".topo"));
+	}
+
+	private static String name(String prefix, int sequence, String suffix) {
+		return String.format("%s%09d%s", prefix, sequence, suffix);
+	}
+
+	private static int sequenceOf(String fname) {
+		return Integer.parseInt(fname.substring(fname.indexOf('-') + 1, fname.lastIndexOf('.')));
+	}
+
+	/**
+	 * Answer the file named #prefix, sequence number, #suffix with the highest
+	 * sequence number in #directory, or null when there is none.
+	 */
+	private static File latest(File directory, String prefix, String suffix) {
+		File result = null;
+		for (File each : directory.listFiles()) {
+			String fname = each.getName();
+			if (fname.startsWith(prefix) && fname.endsWith(suffix)
+					&& ((result == null) || (sequenceOf(fname) > sequenceOf(result.getName())))) {
+				result = each;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Answer the network the jobs run on.
+	 */
+	public Network network() {
+		return network_;
+	}
+
+	/**
+	 * Answer the number of jobs run so far.
+	 */
+	public int jobsDone() {
+		return nextJob_;
+	}
+
+	/**
+	 * Write the progress and accounting counters of #receiver on #buf.
+	 */
+	public void printSummaryOn(StringBuffer buf) {
+		buf.append("jobs: ").append(nextJob_).append(" of ").append(jobs_.size());
+		buf.append(", printed: ").append(printed_);
+		buf.append(", not printed: ").append(notPrinted_);
+		buf.append(", broadcasts: ").append(broadcasts_).append('\n');
+	}
+
+	/**
+	 * A <em>ReportFile</em> is the report of the simulation. Text collects in
+	 * memory and is appended to the file in bulk, since a <em>Network</em>
+	 * flushes its report on every hop; #commit appends everything collected.
+	 */
+	private static class ReportFile extends Writer {
+		private static final int CHUNK_SIZE = 64 * 1024;
+		/**
+		 * Holds the file the report is appended to.
+		 */
+		private final FileChannel channel_;
+		/**
+		 * Holds the text collected since the last #commit.
+		 */
+		private final StringBuilder buffer_ = new StringBuilder(CHUNK_SIZE);
+
+		/**
+		 * Open #file for appending after its first #length bytes, dropping the
+		 * rest.
+		 */
+		ReportFile(File file, long length) throws IOException {
+			channel_ = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			channel_.truncate(length);
+			channel_.position(length);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			buffer_.append(cbuf, off, len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			buffer_.append(str, off, off + len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (buffer_.length() >= CHUNK_SIZE) {
+				commit();
+			}
+		}
+
+		/**
+		 * Append everything collected to the file, and answer the length of the
+		 * report.
+		 */
+		long commit() throws IOException {
+			ByteBuffer bytes = ByteBuffer.wrap(buffer_.toString().getBytes(StandardCharsets.UTF_8));
+			buffer_.setLength(0);
+			while (bytes.hasRemaining()) {
+				channel_.write(bytes);
+			}
+			return channel_.position();
+		}
+
+		/**
+		 * Make everything appended so far durable.
+		 */
+		void sync() throws IOException {
+			channel_.force(false);
+		}
+
+		@Override
+		public void close() throws IOException {
+			commit();
+			channel_.close();
+		}
+	}
+}
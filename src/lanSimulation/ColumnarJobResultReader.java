@@ -0,0 +1,220 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A <em>ColumnarJobResultReader</em> reads the job results written by a
+ * <em>ColumnarJobResultWriter</em>. Rows are read one row group at a time, so
+ * #read holds at most ColumnarJobResultWriter.ROW_GROUP_SIZE rows in memory,
+ * whereas #readAll holds all of them.
+ */
+public class ColumnarJobResultReader implements Closeable {
+	/**
+	 * Holds the stream read from.
+	 */
+	private final DataInputStream in_;
+	/**
+	 * Holds the inflater decompressing the columns, reused for every column.
+	 */
+	private final Inflater inflater_;
+	/**
+	 * Holds the rows of the row group read last.
+	 */
+	private JobResult[] rows_;
+	/**
+	 * Holds the index in #rows_ of the next row to answer.
+	 */
+	private int next_;
+	/**
+	 * Holds whether the row group ending the file was read.
+	 */
+	private boolean ended_;
+
+	/**
+	 * Construct a <em>ColumnarJobResultReader</em> reading from #in.
+	 */
+	public ColumnarJobResultReader(InputStream in) throws IOException {
+		in_ = new DataInputStream(new BufferedInputStream(in));
+		inflater_ = new Inflater();
+		if (in_.readInt() != ColumnarJobResultWriter.MAGIC) {
+			throw new IOException("Not a LAN simulation result file");
+		}
+		if (in_.readByte() != ColumnarJobResultWriter.VERSION) {
+			throw new IOException("Unsupported result file version");
+		}
+		rows_ = new JobResult[0];
+		next_ = 0;
+		ended_ = false;
+	}
+
+	/**
+	 * Read the next row.
+	 *
+	 * @return Answer the next row, or null when all rows were read.
+	 */
+	public JobResult read() throws IOException {
+		while (next_ == rows_.length) {
+			if (ended_) {
+				return null;
+			}
+			readRowGroup();
+		}
+		return rows_[next_++];
+	}
+
+	/**
+	 * Read all remaining rows.
+	 */
+	public List<JobResult> readAll() throws IOException {
+		ArrayList<JobResult> rows = new ArrayList<>();
+		JobResult row;
+
+		while ((row = read()) != null) {
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	/**
+	 * Read the next row group into #rows_, or note the end of the file.
+	 */
+	private void readRowGroup() throws IOException {
+		int count = in_.readInt();
+
+		next_ = 0;
+		rows_ = new JobResult[Math.max(count, 0)];
+		if (count <= 0) {
+			ended_ = true;
+			return;
+		}
+		long[] ids = new long[count], nanos = new long[count];
+		int[] hops = new int[count];
+		JobResult.Outcome[] outcomes = new JobResult.Outcome[count];
+		String[][] strings = new String[5][];
+		long id = 0;
+
+		ByteArrayInputStream column = readColumn();
+		for (int i = 0; i < count; i++) {
+			long delta = readVarLong(column);
+			id += (delta >>> 1) ^ -(delta & 1);
+			ids[i] = id;
+		}
+		strings[0] = readDictionaryColumn(count);
+		strings[1] = readDictionaryColumn(count);
+		column = readColumn();
+		for (int i = 0; i < count; i++) {
+			hops[i] = (int) readVarLong(column);
+		}
+		column = readColumn();
+		for (int i = 0; i < count; i++) {
+			outcomes[i] = JobResult.Outcome.values()[column.read()];
+		}
+		strings[2] = readDictionaryColumn(count);
+		strings[3] = readDictionaryColumn(count);
+		strings[4] = readDictionaryColumn(count);
+		column = readColumn();
+		for (int i = 0; i < count; i++) {
+			nanos[i] = readVarLong(column);
+		}
+
+		for (int i = 0; i < count; i++) {
+			rows_[i] = new JobResult(ids[i], strings[0][i], strings[1][i], hops[i], outcomes[i], strings[2][i],
+					strings[3][i], strings[4][i], nanos[i]);
+		}
+	}
+
+	/**
+	 * Close the underlying stream.
+	 */
+	public void close() throws IOException {
+		in_.close();
+		inflater_.end();
+	}
+
+	/**
+	 * Read a string column of #count rows, encoded as its dictionary followed by
+	 * one dictionary index per row.
+	 */
+	private String[] readDictionaryColumn(int count) throws IOException {
+		ByteArrayInputStream column = readColumn();
+		String[] dictionary = new String[(int) readVarLong(column)];
+		String[] values = new String[count];
+
+		for (int i = 0; i < dictionary.length; i++) {
+			byte[] bytes = new byte[(int) readVarLong(column)];
+			column.readNBytes(bytes, 0, bytes.length);
+			dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		for (int i = 0; i < count; i++) {
+			values[i] = dictionary[(int) readVarLong(column)];
+		}
+		return values;
+	}
+
+	/**
+	 * Read the next column and answer its decompressed bytes.
+	 */
+	private ByteArrayInputStream readColumn() throws IOException {
+		byte[] raw = new byte[in_.readInt()];
+		byte[] compressed = new byte[in_.readInt()];
+		in_.readFully(compressed);
+
+		inflater_.reset();
+		inflater_.setInput(compressed);
+		try {
+			int length = 0;
+			while (length < raw.length) {
+				int inflated = inflater_.inflate(raw, length, raw.length - length);
+				if ((inflated == 0) && (inflater_.finished() || inflater_.needsInput())) {
+					throw new IOException("Corrupt result file: truncated column");
+				}
+				length += inflated;
+			}
+		} catch (DataFormatException exc) {
+			throw new IOException("Corrupt result file", exc);
+		}
+		return new ByteArrayInputStream(raw);
+	}
+
+	/**
+	 * Read a number written by ColumnarJobResultWriter.writeVarLong from #in.
+	 */
+	private static long readVarLong(InputStream in) throws IOException {
+		long value = 0;
+		int shift = 0, b;
+
+		do {
+			b = in.read();
+			if (b < 0) {
+				throw new EOFException("Corrupt result file: truncated number");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
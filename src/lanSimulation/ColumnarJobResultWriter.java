@@ -0,0 +1,226 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.Deflater;
+
+/**
+ * A <em>ColumnarJobResultWriter</em> writes job results in a compact columnar
+ * binary format, which can be read back with a
+ * <em>ColumnarJobResultReader</em>.
+ * <p>
+ * Rows are collected in row groups of #ROW_GROUP_SIZE rows. A row group is
+ * written column by column, every column with its own encoding: ids are delta
+ * encoded, names, document types, authors and titles are dictionary encoded,
+ * and numbers are written as variable length integers. Every column is then
+ * compressed separately with deflate.
+ * </p>
+ * <p>
+ * A file starts with #MAGIC and #VERSION. A row group is its number of rows,
+ * followed per column by the uncompressed length, the compressed length and
+ * the compressed bytes. A row group of 0 rows ends the file.
+ * </p>
+ */
+public class ColumnarJobResultWriter implements JobResultWriter {
+	/**
+	 * The first 4 bytes of every result file, "LANC".
+	 */
+	static final int MAGIC = 0x4C414E43;
+	/**
+	 * The version of the format written.
+	 */
+	static final byte VERSION = 1;
+	/**
+	 * The number of rows of a full row group.
+	 */
+	static final int ROW_GROUP_SIZE = 65536;
+
+	/**
+	 * Holds the stream written on.
+	 */
+	private final DataOutputStream out_;
+	/**
+	 * Holds the rows of the row group not written yet.
+	 */
+	private final ArrayList<JobResult> rows_;
+	/**
+	 * Holds the deflater compressing the columns, reused for every column.
+	 */
+	private final Deflater deflater_;
+
+	/**
+	 * Construct a <em>ColumnarJobResultWriter</em> writing on #out.
+	 */
+	public ColumnarJobResultWriter(OutputStream out) throws IOException {
+		out_ = new DataOutputStream(new BufferedOutputStream(out));
+		rows_ = new ArrayList<>(ROW_GROUP_SIZE);
+		deflater_ = new Deflater(Deflater.BEST_SPEED);
+		out_.writeInt(MAGIC);
+		out_.writeByte(VERSION);
+	}
+
+	public void write(JobResult result) throws IOException {
+		rows_.add(result);
+		if (rows_.size() == ROW_GROUP_SIZE) {
+			writeRowGroup();
+		}
+	}
+
+	/**
+	 * Write the remaining rows, end the file and close the underlying stream.
+	 */
+	public void close() throws IOException {
+		if (!rows_.isEmpty()) {
+			writeRowGroup();
+		}
+		out_.writeInt(0);
+		out_.close();
+		deflater_.end();
+	}
+
+	/**
+	 * Write #rows_ as one row group and empty it.
+	 */
+	private void writeRowGroup() throws IOException {
+		ByteArrayOutputStream column = new ByteArrayOutputStream(rows_.size() * 2);
+		long previous = 0;
+
+		out_.writeInt(rows_.size());
+
+		for (JobResult row : rows_) {
+			writeVarLong(column, zigZag(row.id_ - previous));
+			previous = row.id_;
+		}
+		writeColumn(column);
+		writeDictionaryColumn(column, 0);
+		writeDictionaryColumn(column, 1);
+		for (JobResult row : rows_) {
+			writeVarLong(column, row.hops_);
+		}
+		writeColumn(column);
+		for (JobResult row : rows_) {
+			column.write(row.outcome_.ordinal());
+		}
+		writeColumn(column);
+		writeDictionaryColumn(column, 2);
+		writeDictionaryColumn(column, 3);
+		writeDictionaryColumn(column, 4);
+		for (JobResult row : rows_) {
+			writeVarLong(column, row.nanos_);
+		}
+		writeColumn(column);
+
+		rows_.clear();
+	}
+
+	/**
+	 * Answer the string column #field of #row: 0 origin, 1 destination, 2
+	 * document type, 3 author, 4 title.
+	 */
+	static String stringField(JobResult row, int field) {
+		switch (field) {
+		case 0:
+			return row.origin_;
+		case 1:
+			return row.destination_;
+		case 2:
+			return row.documentType_;
+		case 3:
+			return row.author_;
+		default:
+			return row.title_;
+		}
+	}
+
+	/**
+	 * Encode string column #field as its dictionary followed by one dictionary
+	 * index per row.
+	 */
+	private void writeDictionaryColumn(ByteArrayOutputStream column, int field) throws IOException {
+		HashMap<String, Integer> indices = new HashMap<>();
+		ArrayList<String> dictionary = new ArrayList<>();
+		int[] codes = new int[rows_.size()];
+
+		for (int i = 0; i < codes.length; i++) {
+			String value = stringField(rows_.get(i), field);
+			Integer index = indices.get(value);
+			if (index == null) {
+				index = dictionary.size();
+				indices.put(value, index);
+				dictionary.add(value);
+			}
+			codes[i] = index;
+		}
+		writeVarLong(column, dictionary.size());
+		for (String value : dictionary) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(column, bytes.length);
+			column.write(bytes);
+		}
+		for (int code : codes) {
+			writeVarLong(column, code);
+		}
+		writeColumn(column);
+	}
+
+	/**
+	 * Compress the encoded #column, write it, and empty #column for the next one.
+	 */
+	private void writeColumn(ByteArrayOutputStream column) throws IOException {
+		byte[] raw = column.toByteArray();
+		byte[] buffer = new byte[Math.max(64, raw.length + raw.length / 100 + 64)];
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 16);
+
+		deflater_.reset();
+		deflater_.setInput(raw);
+		deflater_.finish();
+		while (!deflater_.finished()) {
+			compressed.write(buffer, 0, deflater_.deflate(buffer));
+		}
+		out_.writeInt(raw.length);
+		out_.writeInt(compressed.size());
+		compressed.writeTo(out_);
+		column.reset();
+	}
+
+	/**
+	 * Answer #value with its sign moved to the lowest bit, so that small
+	 * negative numbers stay small.
+	 */
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Write #value on #out in 7 bit groups, the lowest first, with the high bit
+	 * set on every group but the last.
+	 */
+	static void writeVarLong(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+}
@@ -0,0 +1,82 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A <em>CsvJobResultWriter</em> writes job results as comma separated values,
+ * with a header line. Fields containing a comma, a quote or a line break are
+ * quoted.
+ */
+public class CsvJobResultWriter implements JobResultWriter {
+	/**
+	 * Holds the writer the rows are written on.
+	 */
+	private final Writer out_;
+
+	/**
+	 * Construct a <em>CsvJobResultWriter</em> writing on #out.
+	 */
+	public CsvJobResultWriter(OutputStream out) throws IOException {
+		out_ = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		out_.write("id,origin,destination,hops,outcome,documentType,author,title,nanos\n");
+	}
+
+	public void write(JobResult result) throws IOException {
+		out_.write(Long.toString(result.id_));
+		out_.write(',');
+		writeField(result.origin_);
+		out_.write(',');
+		writeField(result.destination_);
+		out_.write(',');
+		out_.write(Integer.toString(result.hops_));
+		out_.write(',');
+		out_.write(result.outcome_.name());
+		out_.write(',');
+		writeField(result.documentType_);
+		out_.write(',');
+		writeField(result.author_);
+		out_.write(',');
+		writeField(result.title_);
+		out_.write(',');
+		out_.write(Long.toString(result.nanos_));
+		out_.write('\n');
+	}
+
+	/**
+	 * Write #field, quoted when it holds a separator, a quote or a line break.
+	 */
+	private void writeField(String field) throws IOException {
+		if ((field.indexOf(',') < 0) && (field.indexOf('"') < 0) && (field.indexOf('\n') < 0)
+				&& (field.indexOf('\r') < 0)) {
+			out_.write(field);
+		} else {
+			out_.write('"');
+			out_.write(field.replace("\"", "\"\""));
+			out_.write('"');
+		}
+	}
+
+	public void close() throws IOException {
+		out_.close();
+	}
+}
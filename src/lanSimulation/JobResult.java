@@ -0,0 +1,112 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+/**
+ * A <em>JobResult</em> describes what happened to a single print job: one row
+ * of the results of a simulation run.
+ */
+public class JobResult {
+	/**
+	 * What happened to a print job.
+	 */
+	public enum Outcome {
+		/** The document was printed. */
+		DELIVERED,
+		/** The destination was reached, but it is not a printer. */
+		NOT_A_PRINTER,
+		/** The packet travelled the whole ring without finding the destination. */
+		NOT_FOUND,
+		/** The packet was lost on a failed node. */
+		LOST
+	}
+
+	/**
+	 * Holds the number of the job within its run.
+	 */
+	public final long id_;
+	/**
+	 * Holds the name of the workstation which requested the job.
+	 */
+	public final String origin_;
+	/**
+	 * Holds the name of the printer the job was sent to.
+	 */
+	public final String destination_;
+	/**
+	 * Holds the number of hops the packet travelled.
+	 */
+	public final int hops_;
+	/**
+	 * Holds what happened to the job.
+	 */
+	public final Outcome outcome_;
+	/**
+	 * Holds "POSTSCRIPT" or "ASCII".
+	 */
+	public final String documentType_;
+	/**
+	 * Holds the author found in the header of the document.
+	 */
+	public final String author_;
+	/**
+	 * Holds the title found in the header of the document.
+	 */
+	public final String title_;
+	/**
+	 * Holds the time spent handling the request, in nanoseconds.
+	 */
+	public final long nanos_;
+
+	/**
+	 * Construct a <em>JobResult</em> with the given fields.
+	 */
+	public JobResult(long id, String origin, String destination, int hops, Outcome outcome, String documentType,
+			String author, String title, long nanos) {
+		id_ = id;
+		origin_ = origin;
+		destination_ = destination;
+		hops_ = hops;
+		outcome_ = outcome;
+		documentType_ = documentType;
+		author_ = author;
+		title_ = title;
+		nanos_ = nanos;
+	}
+
+	public boolean equals(Object other) {
+		if (!(other instanceof JobResult)) {
+			return false;
+		}
+		JobResult result = (JobResult) other;
+		return (id_ == result.id_) && origin_.equals(result.origin_) && destination_.equals(result.destination_)
+				&& (hops_ == result.hops_) && (outcome_ == result.outcome_)
+				&& documentType_.equals(result.documentType_) && author_.equals(result.author_)
+				&& title_.equals(result.title_) && (nanos_ == result.nanos_);
+	}
+
+	public int hashCode() {
+		return Long.hashCode(id_) * 31 + origin_.hashCode();
+	}
+
+	public String toString() {
+		return id_ + " " + origin_ + " -> " + destination_ + " " + outcome_ + " (" + hops_ + " hops)";
+	}
+}
@@ -0,0 +1,130 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+import java.io.*;
+
+/**
+ * A <em>JobResultRecorder</em> wraps a <em>Network</em> and writes one
+ * <em>JobResult</em> for every print request passed through it on a
+ * <em>JobResultWriter</em>.
+ * <p>
+ * The recorder observes the network, next to any other observer, to count hops
+ * and learn the outcome.
+ * </p>
+ */
+public class JobResultRecorder implements NetworkObserver, Closeable {
+	/**
+	 * Holds the network the requests are forwarded to.
+	 */
+	private final Network network_;
+	/**
+	 * Holds the writer the results are written on.
+	 */
+	private final JobResultWriter writer_;
+	/**
+	 * Holds the id of the next job.
+	 */
+	private long nextId_;
+	/**
+	 * Holds the number of hops the packet of the request in progress travelled.
+	 */
+	private int hops_;
+	/**
+	 * Holds what happened to the packet of the request in progress, or null
+	 * while it travels.
+	 */
+	private JobResult.Outcome outcome_;
+	/**
+	 * Holds the document type, author and title of the last packet that
+	 * arrived or was lost.
+	 */
+	private String documentType_, author_, title_;
+
+	/**
+	 * Construct a <em>JobResultRecorder</em> which forwards requests to #network
+	 * and writes their results on #writer.
+	 * <p>
+	 * <strong>Precondition:</strong> network.isInitialized();
+	 * </p>
+	 */
+	public JobResultRecorder(Network network, JobResultWriter writer) {
+		network_ = network;
+		writer_ = writer;
+		nextId_ = 0;
+		network.addObserver(this);
+	}
+
+	/**
+	 * Forward the print request to the network and record its result.
+	 *
+	 * @see Network#requestWorkstationPrintsDocument(String, String, String, Writer)
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document, String printer,
+			Writer report) throws IOException {
+		hops_ = 0;
+		outcome_ = null;
+		long start = System.nanoTime();
+		boolean result = network_.requestWorkstationPrintsDocument(workstation, document, printer, report);
+		long nanos = System.nanoTime() - start;
+
+		writer_.write(new JobResult(nextId_++, workstation, printer, hops_, outcome_, documentType_, author_, title_,
+				nanos));
+		return result;
+	}
+
+	public void packetPassed(Node node, Packet packet) {
+		hops_++;
+	}
+
+	public void packetArrived(Node node, Packet packet, boolean accepted) {
+		if (accepted) {
+			outcome_ = JobResult.Outcome.DELIVERED;
+		} else if (node.address_ == packet.destinationAddress_) {
+			outcome_ = JobResult.Outcome.NOT_A_PRINTER;
+		} else {
+			outcome_ = JobResult.Outcome.NOT_FOUND;
+		}
+		describe(packet);
+	}
+
+	public void packetLost(Node node, Packet packet) {
+		outcome_ = JobResult.Outcome.LOST;
+		describe(packet);
+	}
+
+	/**
+	 * Remember the document type, author and title of #packet.
+	 */
+	private void describe(Packet packet) {
+		documentType_ = packet.isPostscript() ? "POSTSCRIPT" : "ASCII";
+		author_ = packet.author();
+		title_ = packet.title();
+	}
+
+	/**
+	 * Stop observing the network and close the writer.
+	 */
+	public void close() throws IOException {
+		network_.removeObserver(this);
+		writer_.close();
+	}
+}
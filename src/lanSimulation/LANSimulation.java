@@ -22,6 +22,8 @@ package lanSimulation;
 import lanSimulation.tests.*;
 import java.lang.AssertionError;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class LANSimulation {
 
@@ -33,7 +35,9 @@ public class LANSimulation {
 	}
 
 	/**
-	 * It simulates the network and prints the report
+	 * It simulates the network, running the #defaultScenarios one after the other
+	 * on the same network, with a request from an unknown workstation before the
+	 * broadcast, and prints the report
 	 */
 	public static void simulate () {
 		Network network = Network.DefaultExample();
@@ -56,51 +60,9 @@ public class LANSimulation {
 		System.out.println();
 
 		System.out.println("---------------------------------SCENARIOS------------------------------------------");
-		String document = "author: FILIP   Hello World";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
-
-		System.out.print("'Filip' prints '" + document + "' on 'UnknownPrinter': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "UnknownPrinter", report));
-		System.out.println(" (expects false);");
-
-		System.out.print("'Filip' prints '" + document + "' on 'Hans': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Hans", report));
-		System.out.println(" (expects false);");
-
-		System.out.print("'Filip' prints '" + document + "' on 'n1': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "n1", report));
-		System.out.println(" (expects false);");
-
-		document = "Hello World";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
-
-		document = "!PS Hello World in postscript.author:Filip.title:Hello.";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
-
-		System.out.print("'Filip' prints '" + document + "' on 'Hans': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Hans", report));
-		System.out.println(" (expects false);");
-
-		document = "!PS Hello World in postscript.Author:Filip.Title:Hello.";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
-
-		document = "!PS Hello World in postscript.author:Filip;title:Hello;";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
-
-		document = "!PS Hello World in postscript.author:.title:.";
-		System.out.print("'Filip' prints '" + document + "' on 'Andy': ");
-		System.out.print(network.requestWorkstationPrintsDocument("Filip", document, "Andy", report));
-		System.out.println(" (expects true);");
+		for (Scenario scenario : printScenarios()) {
+			simulate(scenario, network, report);
+		}
 
 		try {
 			System.out.print("'UnknownWorkstation' prints 'does not matter' on 'does not matter': ");
@@ -111,25 +73,109 @@ public class LANSimulation {
 			System.out.println("exception (as expected);");
 		};
 
-		System.out.print("BROADCAST REQUEST: ");
-		System.out.print(network.requestBroadcast(report));
-		System.out.println(" (expects true);");
+		simulate(Scenario.broadcast(), network, report);
 
 		System.out.println(); System.out.println(); System.out.println();
 		System.out.println("---------------------------------REPORT------------------------------------------");
 		System.out.println(report.toString());
 	}
 
+	private static void simulate (Scenario scenario, Network network, Writer report) {
+		System.out.print(scenario.name_ + ": ");
+		System.out.print(scenario.action_.run(network, report));
+		System.out.println(" (expects " + scenario.expected_ + ");");
+	}
+
+	/**
+	 * Answer the scenarios of #simulate, as independent scenarios that can also be
+	 * run by a ScenarioRunner: the print requests followed by a broadcast.
+	 */
+	public static List<Scenario> defaultScenarios () {
+		List<Scenario> scenarios = printScenarios();
+		scenarios.add(Scenario.broadcast());
+		return scenarios;
+	}
+
+	private static List<Scenario> printScenarios () {
+		List<Scenario> scenarios = new ArrayList<>();
+
+		scenarios.add(Scenario.print("Filip", "author: FILIP   Hello World", "Andy", true));
+		scenarios.add(Scenario.print("Filip", "author: FILIP   Hello World", "UnknownPrinter", false));
+		scenarios.add(Scenario.print("Filip", "author: FILIP   Hello World", "Hans", false));
+		scenarios.add(Scenario.print("Filip", "author: FILIP   Hello World", "n1", false));
+		scenarios.add(Scenario.print("Filip", "Hello World", "Andy", true));
+		scenarios.add(Scenario.print("Filip", "!PS Hello World in postscript.author:Filip.title:Hello.", "Andy", true));
+		scenarios.add(Scenario.print("Filip", "!PS Hello World in postscript.author:Filip.title:Hello.", "Hans", false));
+		scenarios.add(Scenario.print("Filip", "!PS Hello World in postscript.Author:Filip.Title:Hello.", "Andy", true));
+		scenarios.add(Scenario.print("Filip", "!PS Hello World in postscript.author:Filip;title:Hello;", "Andy", true));
+		scenarios.add(Scenario.print("Filip", "!PS Hello World in postscript.author:.title:.", "Andy", true));
+		return scenarios;
+	}
+
+	/**
+	 * Answer #nrOfIterations times the requests of #simulate, with printer 'Andy' failing and being restored in
+	 * between, as jobs for a CheckpointedSimulation on Network.DefaultExample().
+	 */
+	public static List<CheckpointedSimulation.Job> defaultJobs (int nrOfIterations) {
+		List<CheckpointedSimulation.Job> jobs = new ArrayList<>();
+
+		for (int i = 0; i < nrOfIterations; i++) {
+			jobs.add(CheckpointedSimulation.Job.print("Filip", "author: FILIP   Hello World", "Andy"));
+			jobs.add(CheckpointedSimulation.Job.print("Filip", "author: FILIP   Hello World", "UnknownPrinter"));
+			jobs.add(CheckpointedSimulation.Job.print("Filip", "author: FILIP   Hello World", "Hans"));
+			jobs.add(CheckpointedSimulation.Job.print("Filip", "Hello World", "Andy"));
+			jobs.add(CheckpointedSimulation.Job.print("Filip", "!PS Hello World in postscript.author:Filip.title:Hello.", "Andy"));
+			jobs.add(CheckpointedSimulation.Job.fail("Andy"));
+			jobs.add(CheckpointedSimulation.Job.print("Filip", "Hello World", "Andy"));
+			jobs.add(CheckpointedSimulation.Job.restore("Andy"));
+			jobs.add(CheckpointedSimulation.Job.broadcast());
+		}
+		return jobs;
+	}
+
+	/**
+	 * Run the scenarios of #simulate #nrOfIters times, in parallel on all
+	 * available processors, and print the aggregated summary followed by the
+	 * merged report.
+	 */
+	public static void simulateParallel (int nrOfIters) {
+		ScenarioRunner runner = new ScenarioRunner(Network::DefaultExample);
+		StringWriter report = new StringWriter(100);
+		StringBuffer buf = new StringBuffer(100);
+
+		for (int i = 0; i < nrOfIters; i++) {
+			runner.addAll(defaultScenarios());
+		}
+
+		try {
+			List<ScenarioRunner.Outcome> outcomes = runner.run(Runtime.getRuntime().availableProcessors());
+			ScenarioRunner.printSummaryOn(outcomes, buf);
+			ScenarioRunner.printReportsOn(outcomes, report);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (IOException ignored) {
+		}
+
+		System.out.println("---------------------------------SCENARIOS------------------------------------------");
+		System.out.println(buf.toString());
+		System.out.println("---------------------------------REPORT------------------------------------------");
+		System.out.println(report.toString());
+	}
+
 	/**
-	 * If the first argument is 't', then do regression tests. If the first argument is 's', then simulate the LAN. Otherwise,
-	 * print an error message
+	 * If the first argument is 't', then do regression tests. If the first argument is 's', then simulate the LAN. If the
+	 * first argument is 'p', then run the simulation scenarios in parallel. If the first argument is 'c', then check how
+	 * the network operations scale against the stored baseline. If the first argument is 'serve', then handle requests
+	 * sent over a local socket. If the first argument is 'checkpoint', then run a simulation that checkpoints its state,
+	 * which 'resume' picks up from its latest checkpoint. Otherwise, print an error message
 	 *
 	 * @param args the command line arguments
 	 */
 	public static void main (String[] args) {
 
 		if (args.length <= 0) {
-			System.out.println("Usage: t(est) | s(imulate) nrOfIterations '");	    
+			System.out.println("Usage: t(est) | s(imulate) nrOfIterations | p(arallel) nrOfIterations | c(omplexity) maxRingSize | serve port|socketPath [ringSize] | checkpoint directory nrOfIterations | resume directory '");	    
 		} else if (args[0].equals("t")) {
 			doRegressionTests();
 		} else if (args[0].equals("s")) {
@@ -141,6 +187,56 @@ public class LANSimulation {
 			for (int i = 0; i < nrOfIters; i++) {
 				simulate();
 			}
+		} else if (args[0].equals("p")) {
+			int nrOfIters = 1;
+			if (args.length > 1) {
+				nrOfIters = Integer.parseInt(args[1]);
+			};
+
+			simulateParallel(nrOfIters);
+		} else if (args[0].equals("checkpoint") || args[0].equals("resume")) {
+			if (args.length < 2) {
+				System.out.println("Usage: checkpoint directory nrOfIterations | resume directory");
+				return;
+			}
+			try {
+				CheckpointedSimulation simulation;
+				if (args[0].equals("checkpoint")) {
+					int nrOfIters = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+					File directory = new File(args[1]);
+					directory.mkdirs();
+					simulation = CheckpointedSimulation.start(directory, Network.DefaultExample(),
+							defaultJobs(nrOfIters), 1000);
+				} else {
+					simulation = CheckpointedSimulation.resume(new File(args[1]), 1000);
+				}
+				simulation.run();
+				StringBuffer buf = new StringBuffer(100);
+				simulation.printSummaryOn(buf);
+				System.out.print(buf);
+			} catch (IOException exc) {
+				System.out.println("Cannot simulate in '" + args[1] + "': " + exc.getMessage());
+			}
+		} else if (args[0].equals("serve")) {
+			if (args.length < 2) {
+				System.out.println("Usage: serve port|socketPath [ringSize]");
+				return;
+			}
+			Network network = (args.length > 2) ? Network.RingExample(Integer.parseInt(args[2])) : Network.DefaultExample();
+			try {
+				RequestServer.serve(network, args[1]);
+			} catch (IOException | InterruptedException exc) {
+				System.out.println("Cannot serve on '" + args[1] + "': " + exc.getMessage());
+			}
+		} else if (args[0].equals("c")) {
+			int maxSize = 1000000;
+			if (args.length > 1) {
+				maxSize = Integer.parseInt(args[1]);
+			};
+
+			if (!ScalingHarness.run(maxSize, "scalingBaseline.properties")) {
+				System.exit(1);
+			}
 		} else {
 			System.out.print("Unknown command to LANSimulation: '");
 			System.out.print(args[0]);
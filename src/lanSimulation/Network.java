@@ -20,11 +20,22 @@
 package lanSimulation;
 
 import lanSimulation.internals.*;
+import lanSimulation.jfr.*;
 import java.util.Hashtable;
-import java.util.List;
-import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.io.*;
+import java.nio.channels.GatheringByteChannel;
 
 /**
  * A <em>Network</em> represents the basic data stucture for simulating a Local
@@ -33,6 +44,24 @@ import java.io.*;
  * their destination, or until they travelled the whole token ring.
  */
 public class Network {
+	/**
+	 * The actions each node logs when a broadcast packet passes by. Shared by all
+	 * requests, so the broadcast path does not rebuild them.
+	 */
+	private static final String[] BROADCAST_ACTIONS = { Node.ACCEPTS_BROADCAST, Node.PASSES_PACKET_ON };
+	/**
+	 * The actions each node logs when a print packet passes by.
+	 */
+	private static final String[] PRINT_ACTIONS = { Node.PASSES_PACKET_ON };
+	/**
+	 * The number of released packets kept around for reuse.
+	 */
+	private static final int PACKET_POOL_CAPACITY = 4;
+	/**
+	 * The number of nearest printer queries remembered.
+	 */
+	private static final int NEAREST_PRINTERS_CACHE_CAPACITY = 1024;
+
 	/**
 	 * Holds a pointer to myself. Used to verify whether I am properly initialized.
 	 */
@@ -47,6 +76,49 @@ public class Network {
 	 * the requests for the network.
 	 */
 	private final Hashtable<String, Node> workstations_;
+	/**
+	 * Holds the packets which are reused across requests.
+	 */
+	private final PacketPool packetPool_;
+	/**
+	 * Assigns every node on the token ring an integer address. Used to route
+	 * packets without comparing names.
+	 */
+	private final AddressTable addresses_;
+	/**
+	 * Holds the positions of the nodes on the token ring, or null when they must
+	 * be recomputed. Used to answer distance queries.
+	 */
+	private RingIndex ringIndex_;
+	/**
+	 * Remembers the most recently used answers of #nearestPrinters, keyed by
+	 * workstation address and number of printers.
+	 */
+	private final LinkedHashMap<Long, List<String>> nearestPrinters_;
+	/**
+	 * Holds the observers told about every hop, in the order they were added.
+	 * Replaced rather than modified, so that it can be iterated without copying.
+	 */
+	private NetworkObserver[] observers_;
+	/**
+	 * Holds the number of registered workstations currently linked out of the
+	 * token ring.
+	 */
+	private int bypassedWorkstations_;
+	/**
+	 * Holds whether packets may also travel the reverse ring, following
+	 * previousNode_.
+	 */
+	private boolean dualRing_;
+	/**
+	 * Holds how the hops of packets are written on the report.
+	 */
+	private HopReport hopReport_;
+	/**
+	 * Holds a number that grows whenever the topology, the state of a node or
+	 * the report mode changes.
+	 */
+	private long topologyVersion_;
 
 	/**
 	 * Construct a <em>Network</em> suitable for holding #size Workstations.
@@ -60,6 +132,20 @@ public class Network {
 		initPtr_ = this;
 		firstNode_ = null;
 		workstations_ = new Hashtable<>(size, 1.0f);
+		packetPool_ = new PacketPool(PACKET_POOL_CAPACITY);
+		addresses_ = new AddressTable(size * 2);
+		ringIndex_ = null;
+		observers_ = new NetworkObserver[0];
+		bypassedWorkstations_ = 0;
+		dualRing_ = false;
+		hopReport_ = new HopReport();
+		topologyVersion_ = 0;
+		nearestPrinters_ = new LinkedHashMap<Long, List<String>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, List<String>> eldest) {
+				return size() > NEAREST_PRINTERS_CACHE_CAPACITY;
+			}
+		};
 		assert isInitialized();
 		assert !consistentNetwork();
 	}
@@ -89,10 +175,66 @@ public class Network {
 		n1.nextNode_ = wsHans;
 		wsHans.nextNode_ = prAndy;
 		prAndy.nextNode_ = wsFilip;
+		wsFilip.previousNode_ = prAndy;
+		n1.previousNode_ = wsFilip;
+		wsHans.previousNode_ = n1;
+		prAndy.previousNode_ = wsHans;
 
 		network.workstations_.put(wsFilip.name_, wsFilip);
 		network.workstations_.put(wsHans.name_, wsHans);
+		network.addresses_.register(wsFilip);
+		network.addresses_.register(n1);
+		network.addresses_.register(wsHans);
+		network.addresses_.register(prAndy);
 		network.firstNode_ = wsFilip;
+		network.topologyChanged();
+
+		assert network.isInitialized();
+		assert network.consistentNetwork();
+		return network;
+	}
+
+	/**
+	 * Return a <em>Network</em> of #size nodes, for experiments at scale. Every
+	 * tenth node is a workstation named "w" followed by its position on the ring,
+	 * every hundredth node starting from the sixth is a printer named "p" followed
+	 * by its position, and the others are plain nodes named "n" followed by their
+	 * position. The ring starts at workstation "w0".
+	 * <p>
+	 * <strong>Precondition:</strong> size >= 10;
+	 * </p>
+	 * <p>
+	 * <strong>Postcondition:</strong>result.isInitialized() &
+	 * result.consistentNetwork();
+	 * </p>
+	 */
+	public static Network RingExample(int size) {
+		assert size >= 10;
+		Network network = new Network(size);
+		Node previous = null;
+
+		for (int i = 0; i < size; i++) {
+			Node node;
+			if (i % 10 == 0) {
+				node = new Workstation("w" + i);
+				network.workstations_.put(node.name_, node);
+			} else if (i % 100 == 5) {
+				node = new Printer("p" + i);
+			} else {
+				node = new Node("n" + i);
+			}
+			network.addresses_.register(node);
+			if (previous == null) {
+				network.firstNode_ = node;
+			} else {
+				previous.nextNode_ = node;
+				node.previousNode_ = previous;
+			}
+			previous = node;
+		}
+		previous.nextNode_ = network.firstNode_;
+		network.firstNode_.previousNode_ = previous;
+		network.topologyChanged();
 
 		assert network.isInitialized();
 		assert network.consistentNetwork();
@@ -127,8 +269,9 @@ public class Network {
 	/**
 	 * Answer whether #receiver is a consistent token ring network. A consistent
 	 * token ring network - contains at least one workstation and one printer - is
-	 * circular - all registered workstations are on the token ring - all
-	 * workstations on the token ring are registered.
+	 * circular - all registered workstations are on the token ring, unless they
+	 * are bypassed - all workstations on the token ring are registered - all
+	 * nodes on the token ring have an address.
 	 * <p>
 	 * <strong>Precondition:</strong>this.isInitialized();
 	 * </p>
@@ -146,6 +289,8 @@ public class Network {
 
 		currentNode = firstNode_;
 		while (!encountered.containsKey(currentNode.name_)) {
+			if (notCircular(!addresses_.isRegistered(currentNode), false)) return false;
+
 			encountered.put(currentNode.name_, currentNode);
 			if (currentNode instanceof Workstation) {
 				workstationsFound++;
@@ -162,7 +307,7 @@ public class Network {
 
 		if (notCircular(printersFound == 0, false)) return false;
 
-		return workstationsFound == workstations_.size();
+		return workstationsFound + bypassedWorkstations_ == workstations_.size();
 	}
 
 	/**
@@ -193,6 +338,435 @@ public class Network {
 		return false;
 	}
 
+	/**
+	 * Switch dual ring mode on or off. In dual ring mode every node also links to
+	 * its previous node, forming a counter-rotating ring. Print packets take the
+	 * direction in which their destination is closest, and wrap onto the other
+	 * ring when they run into a failed node.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork();
+	 * </p>
+	 */
+	public void setDualRing(boolean dualRing) {
+		assert consistentNetwork();
+		dualRing_ = dualRing;
+		topologyVersion_++;
+		nearestPrinters_.clear();
+	}
+
+	/**
+	 * Answer whether #receiver is in dual ring mode.
+	 */
+	public boolean isDualRing() {
+		return dualRing_;
+	}
+
+	/**
+	 * Answer how much #receiver reports about the hops of packets.
+	 */
+	public ReportVerbosity reportVerbosity() {
+		return hopReport_.verbosity();
+	}
+
+	/**
+	 * Set how much #receiver reports about the hops of packets. At
+	 * ReportVerbosity.FULL, the default, every node a packet passes writes its
+	 * own line; the other verbosities summarise each run of hops on one line, or
+	 * leave hops out of the report altogether.
+	 * <p>
+	 * <strong>Precondition:</strong> verbosity != null;
+	 * </p>
+	 */
+	public void setReportVerbosity(ReportVerbosity verbosity) {
+		hopReport_.setVerbosity(verbosity);
+		topologyVersion_++;
+	}
+
+	/**
+	 * Answer one in how many hops #receiver reports at ReportVerbosity.SAMPLED.
+	 * <p>
+	 * <strong>Postcondition:</strong> result > 0;
+	 * </p>
+	 */
+	public int reportSampling() {
+		return hopReport_.sampling();
+	}
+
+	/**
+	 * Report one in #sampling hops at ReportVerbosity.SAMPLED.
+	 * <p>
+	 * <strong>Precondition:</strong> sampling > 0;
+	 * </p>
+	 */
+	public void setReportSampling(int sampling) {
+		hopReport_.setSampling(sampling);
+		topologyVersion_++;
+	}
+
+	/**
+	 * Answer a number that grows whenever the topology of #receiver, the state of
+	 * one of its nodes, or its report mode changes; equal numbers mean equal
+	 * snapshots.
+	 */
+	public long topologyVersion() {
+		return topologyVersion_;
+	}
+
+	/**
+	 * Answer a copy of the topology and node state of #receiver.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork();
+	 * </p>
+	 */
+	public NetworkSnapshot snapshot() {
+		assert consistentNetwork();
+		int size = addresses_.size();
+		byte[] kinds = new byte[size];
+		String[] names = new String[size];
+		int[] next = new int[size], previous = new int[size];
+		boolean[] failed = new boolean[size], bypassed = new boolean[size], bypassedFirst = new boolean[size];
+
+		for (int i = 0; i < size; i++) {
+			Node node = addresses_.nodeAt(i);
+			kinds[i] = (node instanceof Workstation) ? NetworkSnapshot.WORKSTATION
+					: (node instanceof Printer) ? NetworkSnapshot.PRINTER : NetworkSnapshot.NODE;
+			names[i] = node.name_;
+			next[i] = (node.nextNode_ == null) ? Node.NO_ADDRESS : node.nextNode_.address_;
+			previous[i] = (node.previousNode_ == null) ? Node.NO_ADDRESS : node.previousNode_.address_;
+			failed[i] = node.failed_;
+			bypassed[i] = node.bypassed_;
+			bypassedFirst[i] = node.bypassedFirst_;
+		}
+		return new NetworkSnapshot(kinds, names, next, previous, failed, bypassed, bypassedFirst, firstNode_.address_,
+				dualRing_,
+				hopReport_.verbosity(), hopReport_.sampling());
+	}
+
+	/**
+	 * Return a <em>Network</em> rebuilt from #snapshot, with every node at the
+	 * address it had.
+	 * <p>
+	 * <strong>Postcondition:</strong>result.isInitialized() &
+	 * result.consistentNetwork();
+	 * </p>
+	 */
+	public static Network fromSnapshot(NetworkSnapshot snapshot) {
+		Network network = new Network(Math.max(1, snapshot.size()));
+		Node[] nodes = new Node[snapshot.size()];
+
+		for (int i = 0; i < nodes.length; i++) {
+			if (snapshot.kinds_[i] == NetworkSnapshot.WORKSTATION) {
+				nodes[i] = new Workstation(snapshot.names_[i]);
+				network.workstations_.put(nodes[i].name_, nodes[i]);
+			} else if (snapshot.kinds_[i] == NetworkSnapshot.PRINTER) {
+				nodes[i] = new Printer(snapshot.names_[i]);
+			} else {
+				nodes[i] = new Node(snapshot.names_[i]);
+			}
+			network.addresses_.register(nodes[i]);
+		}
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i].nextNode_ = (snapshot.next_[i] == Node.NO_ADDRESS) ? null : nodes[snapshot.next_[i]];
+			nodes[i].previousNode_ = (snapshot.previous_[i] == Node.NO_ADDRESS) ? null : nodes[snapshot.previous_[i]];
+			nodes[i].failed_ = snapshot.failed_[i];
+			nodes[i].bypassed_ = snapshot.bypassed_[i];
+			nodes[i].bypassedFirst_ = snapshot.bypassedFirst_[i];
+			if (nodes[i].bypassed_ && (nodes[i] instanceof Workstation)) {
+				network.bypassedWorkstations_++;
+			}
+		}
+		network.firstNode_ = nodes[snapshot.firstAddress_];
+		network.dualRing_ = snapshot.dualRing_;
+		network.hopReport_.setVerbosity(snapshot.verbosity_);
+		network.hopReport_.setSampling(snapshot.sampling_);
+		network.topologyChanged();
+
+		assert network.isInitialized();
+		assert network.consistentNetwork();
+		return network;
+	}
+
+	/**
+	 * Let the node named #name fail. The token ring is broken: packets reaching
+	 * the node are lost until it is bypassed.
+	 * <p>
+	 * <strong>Precondition:</strong> isInitialized() & a node named #name is
+	 * registered;
+	 * </p>
+	 */
+	public void fail(String name) {
+		assert isInitialized();
+		nodeNamed(name).failed_ = true;
+		topologyVersion_++;
+	}
+
+	/**
+	 * Link the failed node named #name out of the token ring, so that packets go
+	 * from its previous node straight to its next node. The ring index is updated
+	 * in place in O(log n) rather than rebuilt. A node that did not fail is never
+	 * bypassed: a workstation off the ring would send packets that never come
+	 * back to it. The last printer on the token ring is not bypassed either,
+	 * since the ring would no longer be consistent.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork() & the node is on the
+	 * token ring & the node failed & the token ring holds at least one other
+	 * node;
+	 * </p>
+	 *
+	 * @return Answer #true when the node was bypassed, and #false when it was
+	 *         left on the token ring because it is the last printer.
+	 */
+	public boolean bypass(String name) {
+		assert isInitialized();
+		Node node = nodeNamed(name), previous = node.previousNode_;
+		assert node.failed_ & !node.bypassed_ & (node.nextNode_ != node);
+
+		if (!node.failed_) {
+			return false;
+		}
+		RingIndex index = ringIndex();
+		if ((node instanceof Printer) && (index.printerCount() <= 1)) {
+			return false;
+		}
+		if ((previous == null) || (previous.nextNode_ != node)) {
+			previous = index.previousOf(node);
+		}
+		previous.nextNode_ = node.nextNode_;
+		node.nextNode_.previousNode_ = previous;
+		node.previousNode_ = previous;
+		node.bypassed_ = true;
+		node.bypassedFirst_ = (firstNode_ == node);
+		if (node.bypassedFirst_) {
+			firstNode_ = node.nextNode_;
+		}
+		if (node instanceof Workstation) {
+			bypassedWorkstations_++;
+		}
+		index.linkOut(node, firstNode_);
+		topologyVersion_++;
+		nearestPrinters_.clear();
+		return true;
+	}
+
+	/**
+	 * Repair the node named #name and, when it was bypassed, link it back in the
+	 * token ring between the nodes it was linked out from. A node that was the
+	 * first node when it was bypassed becomes the first node again.
+	 * <p>
+	 * <strong>Precondition:</strong> isInitialized() & the neighbours of the node
+	 * are still on the token ring;
+	 * </p>
+	 */
+	public void restore(String name) {
+		assert isInitialized();
+		Node node = nodeNamed(name);
+
+		node.failed_ = false;
+		topologyVersion_++;
+		if (node.bypassed_) {
+			node.previousNode_.nextNode_ = node;
+			node.nextNode_.previousNode_ = node;
+			node.bypassed_ = false;
+			if (node.bypassedFirst_) {
+				firstNode_ = node;
+				node.bypassedFirst_ = false;
+			}
+			if (node instanceof Workstation) {
+				bypassedWorkstations_--;
+			}
+			if ((ringIndex_ != null) && !ringIndex_.linkIn(node, firstNode_)) {
+				ringIndex_ = null;
+			}
+			nearestPrinters_.clear();
+		}
+	}
+
+	/**
+	 * Answer the "first" node of the token ring. All nodes can be reached from it
+	 * by following nextNode_.
+	 * <p>
+	 * <strong>Precondition:</strong> isInitialized();
+	 * </p>
+	 */
+	public Node firstNode() {
+		assert isInitialized();
+		return firstNode_;
+	}
+
+	/**
+	 * Answer a sequential stream over the nodes of the token ring, in ring order
+	 * starting at the first node. The stream covers the ring as it was when the
+	 * stream was created.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork();
+	 * </p>
+	 */
+	public Stream<Node> stream() {
+		return StreamSupport.stream(ringIndex().spliterator(), false);
+	}
+
+	/**
+	 * Answer a parallel stream over the nodes of the token ring. Encounter order
+	 * is ring order.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork();
+	 * </p>
+	 */
+	public Stream<Node> parallelStream() {
+		return StreamSupport.stream(ringIndex().spliterator(), true);
+	}
+
+	/**
+	 * Let #observer follow the packets travelling over #receiver, after the
+	 * observers added before.
+	 * <p>
+	 * <strong>Precondition:</strong> isInitialized() & (observer != null);
+	 * </p>
+	 */
+	public void addObserver(NetworkObserver observer) {
+		assert isInitialized() & (observer != null);
+		NetworkObserver[] observers = Arrays.copyOf(observers_, observers_.length + 1);
+		observers[observers_.length] = observer;
+		observers_ = observers;
+	}
+
+	/**
+	 * Stop #observer from following the packets travelling over #receiver. Does
+	 * nothing when #observer was not added.
+	 * <p>
+	 * <strong>Precondition:</strong> isInitialized();
+	 * </p>
+	 */
+	public void removeObserver(NetworkObserver observer) {
+		assert isInitialized();
+		for (int i = 0; i < observers_.length; i++) {
+			if (observers_[i] == observer) {
+				NetworkObserver[] observers = new NetworkObserver[observers_.length - 1];
+				System.arraycopy(observers_, 0, observers, 0, i);
+				System.arraycopy(observers_, i + 1, observers, i, observers.length - i);
+				observers_ = observers;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Tell #receiver that nodes were added to, removed from or moved on the token
+	 * ring. Discards everything derived from the positions of the nodes.
+	 * <p>
+	 * <strong>Precondition:</strong> isInitialized();
+	 * </p>
+	 */
+	public void topologyChanged() {
+		assert isInitialized();
+		topologyVersion_++;
+		ringIndex_ = null;
+		nearestPrinters_.clear();
+	}
+
+	/**
+	 * Answer the positions of the nodes on the token ring, recomputing them when
+	 * the topology changed. Consistency is only verified when recomputing, so
+	 * that queries stay cheap.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork();
+	 * </p>
+	 */
+	public RingIndex ringIndex() {
+		if (ringIndex_ == null) {
+			assert consistentNetwork();
+			ringIndex_ = new RingIndex(firstNode_, addresses_.size());
+		}
+		return ringIndex_;
+	}
+
+	private Node nodeNamed(String name) {
+		int address = addresses_.lookup(name);
+		assert address != Node.NO_ADDRESS;
+		return addresses_.nodeAt(address);
+	}
+
+	/**
+	 * Answer the number of hops a packet travels from the node named #from to the
+	 * node named #to. In dual ring mode the packet takes the direction with the
+	 * fewest hops.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork() & both nodes are on the
+	 * token ring;
+	 * </p>
+	 */
+	public int hopDistance(String from, String to) {
+		assert isInitialized();
+		RingIndex index = ringIndex();
+		int hops = index.hopDistance(nodeNamed(from), nodeNamed(to));
+		return (dualRing_ && (hops * 2 > index.size())) ? index.size() - hops : hops;
+	}
+
+	/**
+	 * Answer the names of the nodes a packet visits travelling from the node
+	 * named #from to the node named #to, both included. In dual ring mode the
+	 * packet takes the direction with the fewest hops.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork() & both nodes are on the
+	 * token ring;
+	 * </p>
+	 */
+	public List<String> pathBetween(String from, String to) {
+		assert isInitialized();
+		RingIndex index = ringIndex();
+		Node origin = nodeNamed(from), destination = nodeNamed(to);
+		boolean reverse = dualRing_ && (index.hopDistance(origin, destination) * 2 > index.size());
+		List<Node> path = reverse ? index.path(destination, origin) : index.path(origin, destination);
+		List<String> names = new ArrayList<>(path.size());
+		for (Node node : path) {
+			names.add(node.name_);
+		}
+		if (reverse) {
+			Collections.reverse(names);
+		}
+		return names;
+	}
+
+	/**
+	 * Answer the names of at most #k printers, ordered by the number of hops a
+	 * packet from #workstation travels to reach them, in dual ring mode taking
+	 * the direction with the fewest hops. Answers are cached until the next
+	 * #topologyChanged or #setDualRing.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork() &
+	 * hasWorkstation(workstation) & (k >= 0);
+	 * </p>
+	 */
+	public List<String> nearestPrinters(String workstation, int k) {
+		assert hasWorkstation(workstation) & (k >= 0);
+		Node node = workstations_.get(workstation);
+		Long key = ((long) node.address_ << 32) | k;
+		List<String> names = nearestPrinters_.get(key);
+
+		if (names == null) {
+			List<Node> printers = ringIndex().nearestPrinters(node, k, dualRing_);
+			names = new ArrayList<>(printers.size());
+			for (Node printer : printers) {
+				names.add(printer.name_);
+			}
+			names = Collections.unmodifiableList(names);
+			nearestPrinters_.put(key, names);
+		}
+		return names;
+	}
+
+	/**
+	 * Answer the name of the node with the given #address. Used to render
+	 * reports for packets, which only carry addresses while travelling.
+	 * <p>
+	 * <strong>Precondition:</strong> isInitialized();
+	 * </p>
+	 */
+	public String nameOf(int address) {
+		assert isInitialized();
+		return addresses_.nameOf(address);
+	}
+
 	/**
 	 * The #receiver is requested to broadcast a message to all nodes. Therefore
 	 * #receiver sends a special broadcast packet across the token ring network,
@@ -209,52 +783,139 @@ public class Network {
 	public boolean requestBroadcast(Writer report) {
 		assert consistentNetwork();
 
+		BroadcastEvent event = BroadcastEvent.enabled() ? new BroadcastEvent() : null;
+		if (event != null) {
+			event.begin();
+		}
 		try {
 			report.write("Broadcast Request\n");
 		} catch (IOException ignored) {
 
 		}
 
+		boolean result = true;
 		Node currentNode = firstNode_;
-		Packet packet = new Packet("BROADCAST", firstNode_.name_, firstNode_.name_);
+		Packet packet = packetPool_.acquire("BROADCAST", firstNode_.name_, firstNode_.name_);
+		packet.originAddress_ = firstNode_.address_;
+		packet.destinationAddress_ = firstNode_.address_;
+
+		try {
+			if (!currentNode.failed_) {
+				do {
+					currentNode = send(report, currentNode, packet, BROADCAST_ACTIONS, false);
+				} while ((!atDestination(currentNode, packet)) & (!currentNode.failed_));
+				flushHops(report);
+			}
 
-		List<String> actions = new ArrayList<>();
-		actions.add("' accepts broadcase packet.\n");
-		actions.add("' passes packet on.\n");
+			if (currentNode.failed_) {
+				result = lost(currentNode, packet, report);
+			} else {
+				arrived(currentNode, packet, true);
+				try {
+					report.write(">>> Broadcast travelled whole token ring.\n\n");
+				} catch (IOException ignored) {
 
-		do {
-			currentNode = send(report, currentNode, actions);
-		} while (!atDestination(currentNode, packet));
+				}
+			}
+		} finally {
+			packetPool_.release(packet);
+		}
+
+		recordBroadcast(event, result);
+		return result;
+	}
+
+	/**
+	 * The byte-oriented variant of #requestBroadcast(Writer). Every node
+	 * contributes its pre-encoded report lines, which are gather-written on
+	 * #channel in bulk, so the report is never re-encoded per hop.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork();
+	 * </p>
+	 * 
+	 * @param channel Channel, typically a FileChannel, that will hold a report
+	 *                about what happened when handling the request.
+	 * @return Anwer #true when the broadcast operation was succesful and #false
+	 *         otherwise
+	 */
+	public boolean requestBroadcast(GatheringByteChannel channel) {
+		assert consistentNetwork();
+
+		BroadcastEvent event = BroadcastEvent.enabled() ? new BroadcastEvent() : null;
+		if (event != null) {
+			event.begin();
+		}
+		boolean result = true;
+		ReportChannel report = new ReportChannel(channel);
+		Node currentNode = firstNode_;
+		Packet packet = packetPool_.acquire("BROADCAST", firstNode_.name_, firstNode_.name_);
+		packet.originAddress_ = firstNode_.address_;
+		packet.destinationAddress_ = firstNode_.address_;
 
 		try {
-			report.write(">>> Broadcast travelled whole token ring.\n\n");
+			report.write("Broadcast Request\n");
+			if (!currentNode.failed_) {
+				do {
+					hopReport_.hop(report, currentNode, true);
+					passed(currentNode, packet);
+					currentNode = currentNode.nextNode_;
+				} while ((!atDestination(currentNode, packet)) & (!currentNode.failed_));
+				hopReport_.flush(report);
+			}
+
+			if (currentNode.failed_) {
+				result = lost(currentNode, packet, report);
+			} else {
+				arrived(currentNode, packet, true);
+				report.write(">>> Broadcast travelled whole token ring.\n\n");
+			}
+			report.flush();
 		} catch (IOException ignored) {
 
+		} finally {
+			packetPool_.release(packet);
 		}
 
-		return true;
+		recordBroadcast(event, result);
+		return result;
+	}
+
+	/**
+	 * End #event and commit it when the broadcast was slow enough to be recorded.
+	 * Does nothing when #event is null, as broadcasts are not being recorded.
+	 */
+	private void recordBroadcast(BroadcastEvent event, boolean succeeded) {
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.origin = firstNode_.name_;
+			event.succeeded = succeeded;
+			event.commit();
+		}
 	}
 
 	/**
-	 * If the packet's destination is the same as the current node's name, then we're at the destination.
+	 * If the packet's destination is the same as the current node's address, then we're at the destination.
 	 *
 	 * @param currentNode The node that the packet is currently at.
 	 * @param packet The packet that is being sent.
 	 * @return The boolean value of whether the packet has reached its destination.
 	 */
 	private boolean atDestination(Node currentNode, Packet packet) {
-		return packet.destination_.equals(currentNode.name_);
+		return packet.destinationAddress_ == currentNode.address_;
 	}
 
 	/**
-	 * If the packet's origin is the same as the current node's name, then return true.
+	 * If the packet's origin is the same as the current node's address, then return true.
 	 *
 	 * @param currentNode The node that the packet is currently at.
 	 * @param packet the packet that is being sent
 	 * @return The packet is being returned to the origin node.
 	 */
 	private boolean atOrigin(Node currentNode, Packet packet) {
-		return packet.origin_.equals(currentNode.name_);
+		return packet.originAddress_ == currentNode.address_;
 	}
 
 	/**
@@ -294,27 +955,246 @@ public class Network {
 
 		boolean result = false;
 		Node currentNode;
-		Packet packet = new Packet(document, workstation, printer);
+		Packet packet = packetPool_.acquire(document, workstation, printer);
 
 		currentNode = workstations_.get(workstation);
+		packet.originAddress_ = currentNode.address_;
+		packet.destinationAddress_ = addresses_.lookup(printer);
 
-		ArrayList<String> actions = new ArrayList<>();
-		actions.add("' passes packet on.\n");
+		Node origin = currentNode;
+		boolean reverse = shorterInReverse(origin, packet), wrapped = false;
 
-		do {
-			currentNode = send(report, currentNode, actions);
-		} while ((!atDestination(currentNode, packet)) & (!atOrigin(currentNode, packet)));
+		try {
+			while (true) {
+				if (!currentNode.failed_) {
+					do {
+						currentNode = send(report, currentNode, packet, PRINT_ACTIONS, reverse);
+					} while ((!atDestination(currentNode, packet)) & (!atOrigin(currentNode, packet))
+							& (!currentNode.failed_));
+					flushHops(report);
+				}
+				if (!(currentNode.failed_ & dualRing_ & !wrapped)) {
+					break;
+				}
+				try {
+					report.write(">>> Token ring broken at '");
+					report.write(currentNode.name_);
+					report.write("', packet wraps onto the other ring.\n");
+				} catch (IOException ignored) {
 
-		if (atDestination(currentNode, packet)) {
-			result = packet.printDocument(currentNode, report, this);
-		} else {
-			try {
+				}
+				currentNode = origin;
+				reverse = !reverse;
+				wrapped = true;
+			}
+
+			if (currentNode.failed_) {
+				result = lost(currentNode, packet, report);
+			} else if (atDestination(currentNode, packet)) {
+				result = packet.printDocument(currentNode, report, this);
+				arrived(currentNode, packet, result);
+			} else {
+				arrived(currentNode, packet, false);
+				try {
+					report.write(">>> Destinition not found, print job cancelled.\n\n");
+					report.flush();
+				} catch (IOException ignored) {
+
+				}
+
+			}
+		} finally {
+			packetPool_.release(packet);
+		}
+
+		return result;
+	}
+
+	/**
+	 * The byte-oriented variant of
+	 * #requestWorkstationPrintsDocument(String, String, String, Writer). The
+	 * pre-encoded report lines of the nodes passed are gather-written on
+	 * #channel in bulk.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork() &
+	 * hasWorkstation(workstation);
+	 * </p>
+	 * 
+	 * @param workstation Name of the workstation requesting the service.
+	 * @param document    Contents that should be printed on the printer.
+	 * @param printer     Name of the printer that should receive the document.
+	 * @param channel     Channel, typically a FileChannel, that will hold a
+	 *                    report about what happened when handling the request.
+	 * @return Anwer #true when the print operation was succesful and #false
+	 *         otherwise
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document, String printer,
+			GatheringByteChannel channel) {
+
+		assert consistentNetwork() & hasWorkstation(workstation);
+
+		boolean result = false;
+		ReportChannel report = new ReportChannel(channel);
+		Node currentNode;
+		Packet packet = packetPool_.acquire(document, workstation, printer);
+
+		currentNode = workstations_.get(workstation);
+		packet.originAddress_ = currentNode.address_;
+		packet.destinationAddress_ = addresses_.lookup(printer);
+
+		Node origin = currentNode;
+		boolean reverse = shorterInReverse(origin, packet), wrapped = false;
+
+		try {
+			report.write("'" + workstation + "' requests printing of '" + document + "' on '" + printer + "' ...\n");
+			while (true) {
+				if (!currentNode.failed_) {
+					do {
+						hopReport_.hop(report, currentNode, false);
+						passed(currentNode, packet);
+						currentNode = reverse ? currentNode.previousNode_ : currentNode.nextNode_;
+					} while ((!atDestination(currentNode, packet)) & (!atOrigin(currentNode, packet))
+							& (!currentNode.failed_));
+					hopReport_.flush(report);
+				}
+				if (!(currentNode.failed_ & dualRing_ & !wrapped)) {
+					break;
+				}
+				report.write(">>> Token ring broken at '" + currentNode.name_ + "', packet wraps onto the other ring.\n");
+				currentNode = origin;
+				reverse = !reverse;
+				wrapped = true;
+			}
+
+			if (currentNode.failed_) {
+				result = lost(currentNode, packet, report);
+			} else if (atDestination(currentNode, packet)) {
+				StringWriter outcome = new StringWriter(100);
+				result = packet.printDocument(currentNode, outcome, this);
+				arrived(currentNode, packet, result);
+				report.write(outcome.toString());
+			} else {
+				arrived(currentNode, packet, false);
 				report.write(">>> Destinition not found, print job cancelled.\n\n");
-				report.flush();
-			} catch (IOException ignored) {
+			}
+			report.flush();
+		} catch (IOException ignored) {
+
+		} finally {
+			packetPool_.release(packet);
+		}
+
+		return result;
+	}
+
+	/**
+	 * The #receiver is requested by #workstation to print #document on every
+	 * printer in #printers. Therefore, #receiver sends a single packet across the
+	 * token ring network, which is handled by each of #printers it passes, until
+	 * either (1) all #printers are reached or (2) the packet travelled complete
+	 * token ring. The document header is parsed once for all printers. In dual
+	 * ring mode the packet takes the direction in which it reaches the last of
+	 * #printers in the fewest hops.
+	 * <p>
+	 * <strong>Precondition:</strong> consistentNetwork() &
+	 * hasWorkstation(workstation) & (!printers.isEmpty());
+	 * </p>
+	 * 
+	 * @param workstation Name of the workstation requesting the service.
+	 * @param document    Contents that should be printed on the printers.
+	 * @param printers    Names of the printers that should receive the document.
+	 * @param report      Stream that will hold a report about what happened when
+	 *                    handling the request.
+	 * @return Answer, for each of #printers in order, #true when the print
+	 *         operation on that printer was succesful and #false otherwise
+	 */
+	public Map<String, Boolean> requestWorkstationMulticastsDocument(String workstation, String document,
+			Collection<String> printers, Writer report) {
+
+		assert consistentNetwork() & hasWorkstation(workstation) & (!printers.isEmpty());
+
+		Map<String, Boolean> result = new LinkedHashMap<>();
+		BitSet pending = new BitSet(addresses_.size());
+		for (String printer : printers) {
+			result.put(printer, Boolean.FALSE);
+			int address = addresses_.lookup(printer);
+			if (address != Node.NO_ADDRESS) {
+				pending.set(address);
+			}
+		}
+
+		try {
+			report.write("'");
+			report.write(workstation);
+			report.write("' requests printing of '");
+			report.write(document);
+			report.write("' on ");
+			report.write(printers.stream().map(each -> "'" + each + "'").collect(Collectors.joining(", ")));
+			report.write(" ...\n");
+		} catch (IOException exc) {
+			// just ignore
+		}
+
+		Node currentNode;
+		Packet packet = packetPool_.acquire(document, workstation, String.join(",", printers));
+		String author = packet.author(), title = packet.title();
+
+		currentNode = workstations_.get(workstation);
+		packet.originAddress_ = currentNode.address_;
+
+		Node origin = currentNode;
+		boolean reverse = multicastInReverse(origin, pending), wrapped = false;
 
+		try {
+			while (true) {
+				if (!currentNode.failed_) {
+					do {
+						currentNode = send(report, currentNode, packet, PRINT_ACTIONS, reverse);
+						if ((!currentNode.failed_) && pending.get(currentNode.address_)) {
+							flushHops(report);
+							boolean printed = packet.printDocument(currentNode, report, this, author, title);
+							result.put(currentNode.name_, printed);
+							pending.clear(currentNode.address_);
+							delivered(currentNode, packet, printed);
+						}
+					} while ((!pending.isEmpty()) & (!atOrigin(currentNode, packet)) & (!currentNode.failed_));
+					flushHops(report);
+				}
+				if (!(currentNode.failed_ & dualRing_ & !wrapped)) {
+					break;
+				}
+				try {
+					report.write(">>> Token ring broken at '");
+					report.write(currentNode.name_);
+					report.write("', packet wraps onto the other ring.\n");
+				} catch (IOException ignored) {
+
+				}
+				currentNode = origin;
+				reverse = !reverse;
+				wrapped = true;
 			}
 
+			if (currentNode.failed_ & !pending.isEmpty()) {
+				lost(currentNode, packet, report);
+			} else {
+				arrived(currentNode, packet, !result.containsValue(Boolean.FALSE));
+				try {
+					for (Map.Entry<String, Boolean> each : result.entrySet()) {
+						if (!each.getValue() && ((addresses_.lookup(each.getKey()) == Node.NO_ADDRESS)
+								|| pending.get(addresses_.lookup(each.getKey())))) {
+							report.write(">>> Destinition '");
+							report.write(each.getKey());
+							report.write("' not found, print job cancelled.\n\n");
+						}
+					}
+					report.flush();
+				} catch (IOException ignored) {
+
+				}
+			}
+		} finally {
+			packetPool_.release(packet);
 		}
 
 		return result;
@@ -325,20 +1205,130 @@ public class Network {
 	 *
 	 * @param report a Writer object that will be used to write the report.
 	 * @param currentNode the current node in the chain
-	 * @param actions a list of actions to send to the server
+	 * @param packet the packet that is being sent
+	 * @param actions the actions to log for the current node
+	 * @param reverse whether the packet travels the reverse ring
 	 * @return The next node in the list.
 	 */
-	private Node send(Writer report, Node currentNode, List<String> actions) {
+	private Node send(Writer report, Node currentNode, Packet packet, String[] actions, boolean reverse) {
+		try {
+			hopReport_.hop(report, currentNode, actions);
+		} catch (IOException ignored) {
+
+		}
+		passed(currentNode, packet);
+		currentNode = reverse ? currentNode.previousNode_ : currentNode.nextNode_;
+		return currentNode;
+	}
+
+	/**
+	 * Write the summary of the hops reported since the last flush, if the
+	 * report verbosity calls for one.
+	 */
+	private void flushHops(Writer report) {
 		try {
-			for (String action : actions) {
-				currentNode.logActionReport(report, action);
+			hopReport_.flush(report);
+		} catch (IOException ignored) {
+
+		}
+	}
+
+	/**
+	 * Answer whether #packet reaches its destination in fewer hops on the reverse
+	 * ring than on the forward ring. Always false unless in dual ring mode.
+	 */
+	private boolean shorterInReverse(Node origin, Packet packet) {
+		if (!dualRing_ || (packet.destinationAddress_ == Node.NO_ADDRESS)) {
+			return false;
+		}
+		RingIndex index = ringIndex();
+		Node destination = addresses_.nodeAt(packet.destinationAddress_);
+		if (!index.contains(destination)) {
+			return false;
+		}
+		return index.hopDistance(origin, destination) * 2 > index.size();
+	}
+
+	/**
+	 * Answer whether a multicast packet from #origin reaches the last of the
+	 * #pending addresses in fewer hops on the reverse ring than on the forward
+	 * ring. Always false unless in dual ring mode.
+	 */
+	private boolean multicastInReverse(Node origin, BitSet pending) {
+		if (!dualRing_) {
+			return false;
+		}
+		RingIndex index = ringIndex();
+		int forward = 0, backward = 0;
+		for (int address = pending.nextSetBit(0); address >= 0; address = pending.nextSetBit(address + 1)) {
+			Node destination = addresses_.nodeAt(address);
+			if (index.contains(destination) && (destination != origin)) {
+				int hops = index.hopDistance(origin, destination);
+				forward = Math.max(forward, hops);
+				backward = Math.max(backward, index.size() - hops);
 			}
+		}
+		return backward < forward;
+	}
+
+	/**
+	 * Report that #packet was lost because it reached the failed #currentNode.
+	 *
+	 * @return false, the result of the request.
+	 */
+	private boolean lost(Node currentNode, Packet packet, Writer report) {
+		try {
+			report.write(">>> Token ring broken at '");
+			report.write(currentNode.name_);
+			report.write("', packet lost.\n\n");
 			report.flush();
 		} catch (IOException ignored) {
 
 		}
-		currentNode = currentNode.nextNode_;
-		return currentNode;
+		for (NetworkObserver observer : observers_) {
+			observer.packetLost(currentNode, packet);
+		}
+		return false;
+	}
+
+	/**
+	 * The byte-oriented variant of #lost(Node, Packet, Writer).
+	 */
+	private boolean lost(Node currentNode, Packet packet, ReportChannel report) throws IOException {
+		report.write(">>> Token ring broken at '" + currentNode.name_ + "', packet lost.\n\n");
+		for (NetworkObserver observer : observers_) {
+			observer.packetLost(currentNode, packet);
+		}
+		return false;
+	}
+
+	/**
+	 * Tell the observers that #currentNode passes #packet on, and record the hop
+	 * when PacketHopEvents are enabled.
+	 */
+	private void passed(Node currentNode, Packet packet) {
+		PacketHopEvent.emit(currentNode, packet);
+		for (NetworkObserver observer : observers_) {
+			observer.packetPassed(currentNode, packet);
+		}
+	}
+
+	/**
+	 * Tell the observers that #packet stopped travelling at #currentNode.
+	 */
+	private void arrived(Node currentNode, Packet packet, boolean accepted) {
+		for (NetworkObserver observer : observers_) {
+			observer.packetArrived(currentNode, packet, accepted);
+		}
+	}
+
+	/**
+	 * Tell the observers that the multicast #packet was handled at #currentNode.
+	 */
+	private void delivered(Node currentNode, Packet packet, boolean accepted) {
+		for (NetworkObserver observer : observers_) {
+			observer.packetDelivered(currentNode, packet, accepted);
+		}
 	}
 
 	/**
@@ -356,6 +1346,10 @@ public class Network {
 	 * @param status The status of the book.
 	 */
 	public void printAccounting(Writer report, String author, String title, String status) throws IOException {
+		AccountingEvent event = AccountingEvent.enabled() ? new AccountingEvent() : null;
+		if (event != null) {
+			event.begin();
+		}
 		report.write("\tAccounting -- author = '");
 		report.write(author);
 		report.write("' -- title = '");
@@ -363,6 +1357,15 @@ public class Network {
 		report.write("'\n");
 		report.write(status);
 		report.flush();
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.author = author;
+			event.title = title;
+			event.commit();
+		}
 	}
 
 	/**
@@ -0,0 +1,56 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+
+/**
+ * A <em>NetworkObserver</em> is told what happens to the packets travelling
+ * over a <em>Network</em>. Observers are called on every hop, so they should
+ * do as little work as possible. A network tells all its observers, in the
+ * order they were added.
+ *
+ * @see Network#addObserver(NetworkObserver)
+ */
+public interface NetworkObserver {
+	/**
+	 * #node passes #packet on to its next node.
+	 */
+	void packetPassed(Node node, Packet packet);
+
+	/**
+	 * #packet stopped travelling at #node: it reached its destination, or it
+	 * came back to its origin. #accepted tells whether the request succeeded.
+	 */
+	void packetArrived(Node node, Packet packet, boolean accepted);
+
+	/**
+	 * A multicast #packet was handled at #node, one of its destinations, and
+	 * travels on. #accepted tells whether #node printed the document.
+	 */
+	default void packetDelivered(Node node, Packet packet, boolean accepted) {
+	}
+
+	/**
+	 * #packet was lost because it reached #node, which has failed.
+	 */
+	default void packetLost(Node node, Packet packet) {
+	}
+}
@@ -0,0 +1,169 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A <em>NetworkSnapshot</em> is a copy of the topology and node state of a
+ * <em>Network</em>: every registered node by address, with its kind, name,
+ * links and flags, which node comes first, and the ring and report modes. It
+ * does not share anything with the network, so it can be written on another
+ * thread while the network goes on.
+ * 
+ * @see Network#snapshot()
+ * @see Network#fromSnapshot(NetworkSnapshot)
+ */
+public class NetworkSnapshot {
+	/**
+	 * The kind of a plain node.
+	 */
+	public static final byte NODE = 0;
+	/**
+	 * The kind of a workstation.
+	 */
+	public static final byte WORKSTATION = 1;
+	/**
+	 * The kind of a printer.
+	 */
+	public static final byte PRINTER = 2;
+	private static final int MAGIC = 0x4c414e50; // "LANP"
+
+	/**
+	 * Holds the kind of every node: #NODE, #WORKSTATION or #PRINTER.
+	 */
+	public final byte[] kinds_;
+	/**
+	 * Holds the name of every node.
+	 */
+	public final String[] names_;
+	/**
+	 * Hold the address of the next and the previous node of every node, or
+	 * Node.NO_ADDRESS when it has none.
+	 */
+	public final int[] next_, previous_;
+	/**
+	 * Holds whether every node failed.
+	 */
+	public final boolean[] failed_;
+	/**
+	 * Holds whether every node is linked out of the token ring.
+	 */
+	public final boolean[] bypassed_;
+	/**
+	 * Holds whether every node was the first node when it was bypassed.
+	 */
+	public final boolean[] bypassedFirst_;
+	/**
+	 * Holds the address of the first node.
+	 */
+	public final int firstAddress_;
+	/**
+	 * Holds whether the network is in dual ring mode.
+	 */
+	public final boolean dualRing_;
+	/**
+	 * Holds how much the network reports about the hops of packets.
+	 */
+	public final ReportVerbosity verbosity_;
+	/**
+	 * Holds one in how many hops the network reports at
+	 * ReportVerbosity.SAMPLED.
+	 */
+	public final int sampling_;
+
+	/**
+	 * Construct a <em>NetworkSnapshot</em> from arrays indexed by address, which
+	 * it takes over.
+	 */
+	public NetworkSnapshot(byte[] kinds, String[] names, int[] next, int[] previous, boolean[] failed,
+			boolean[] bypassed, boolean[] bypassedFirst, int firstAddress, boolean dualRing, ReportVerbosity verbosity,
+			int sampling) {
+		kinds_ = kinds;
+		names_ = names;
+		next_ = next;
+		previous_ = previous;
+		failed_ = failed;
+		bypassed_ = bypassed;
+		bypassedFirst_ = bypassedFirst;
+		firstAddress_ = firstAddress;
+		dualRing_ = dualRing;
+		verbosity_ = verbosity;
+		sampling_ = sampling;
+	}
+
+	/**
+	 * Answer the number of nodes in #receiver.
+	 */
+	public int size() {
+		return names_.length;
+	}
+
+	/**
+	 * Write #receiver on #out.
+	 */
+	public void writeOn(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(size());
+		out.writeInt(firstAddress_);
+		out.writeBoolean(dualRing_);
+		out.writeByte(verbosity_.ordinal());
+		out.writeInt(sampling_);
+		for (int i = 0; i < size(); i++) {
+			out.writeByte(kinds_[i]);
+			out.writeUTF(names_[i]);
+			out.writeInt(next_[i]);
+			out.writeInt(previous_[i]);
+			out.writeByte((failed_[i] ? 1 : 0) | (bypassed_[i] ? 2 : 0) | (bypassedFirst_[i] ? 4 : 0));
+		}
+	}
+
+	/**
+	 * Answer the <em>NetworkSnapshot</em> written on #in by #writeOn.
+	 */
+	public static NetworkSnapshot readFrom(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a network snapshot");
+		}
+		int size = in.readInt(), firstAddress = in.readInt();
+		boolean dualRing = in.readBoolean();
+		ReportVerbosity verbosity = ReportVerbosity.values()[in.readByte()];
+		int sampling = in.readInt();
+		byte[] kinds = new byte[size];
+		String[] names = new String[size];
+		int[] next = new int[size], previous = new int[size];
+		boolean[] failed = new boolean[size], bypassed = new boolean[size], bypassedFirst = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			kinds[i] = in.readByte();
+			names[i] = in.readUTF();
+			next[i] = in.readInt();
+			previous[i] = in.readInt();
+			byte flags = in.readByte();
+			failed[i] = (flags & 1) != 0;
+			bypassed[i] = (flags & 2) != 0;
+			bypassedFirst[i] = (flags & 4) != 0;
+		}
+		return new NetworkSnapshot(kinds, names, next, previous, failed, bypassed, bypassedFirst, firstAddress, dualRing,
+				verbosity, sampling);
+	}
+}
@@ -0,0 +1,331 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * A <em>PrintScheduler</em> sits in front of a <em>Network</em> and decides in
+ * which order the print jobs of the workstations are sent. Jobs are queued per
+ * workstation and dispatched by deficit round-robin, so that a busy
+ * workstation cannot starve the others: every round, a workstation may send
+ * jobs worth its weight times the quantum. Priority classes are served
+ * strictly in order, class 0 first; round-robin applies within a class.
+ * <p>
+ * The cost of a job is the length of its document, and the network sends one
+ * unit of cost per tick. The scheduler measures the share of the network each
+ * workstation received and the latency of its jobs.
+ * </p>
+ */
+public class PrintScheduler {
+	/**
+	 * A print job waiting to be dispatched.
+	 */
+	private static class Job {
+		/**
+		 * Holds the name of the workstation requesting the print.
+		 */
+		final String workstation_;
+		/**
+		 * Holds the document to print.
+		 */
+		final String document_;
+		/**
+		 * Holds the name of the printer to print on.
+		 */
+		final String printer_;
+		/**
+		 * Holds the priority class of the job, 0 being the highest.
+		 */
+		final int priorityClass_;
+		/**
+		 * Holds the time the job arrives at the scheduler.
+		 */
+		final long arrival_;
+
+		Job(String workstation, String document, String printer, int priorityClass, long arrival) {
+			workstation_ = workstation;
+			document_ = document;
+			printer_ = printer;
+			priorityClass_ = priorityClass;
+			arrival_ = arrival;
+		}
+
+		/**
+		 * Answer the cost of printing the job, at least 1.
+		 */
+		long cost() {
+			return Math.max(1, document_.length());
+		}
+	}
+
+	/**
+	 * The jobs of one workstation within one priority class.
+	 */
+	private static class Flow {
+		/**
+		 * Holds the name of the workstation whose jobs flow.
+		 */
+		final String workstation_;
+		/**
+		 * Holds the waiting jobs, in arrival order.
+		 */
+		final ArrayDeque<Job> jobs_;
+		/**
+		 * Holds the cost the flow may still dispatch in this round.
+		 */
+		long deficit_;
+
+		Flow(String workstation) {
+			workstation_ = workstation;
+			jobs_ = new ArrayDeque<>();
+			deficit_ = 0;
+		}
+	}
+
+	/**
+	 * The jobs of one priority class.
+	 */
+	private static class PriorityClass {
+		/**
+		 * Maps workstations on their flow in this class.
+		 */
+		final HashMap<String, Flow> flows_ = new HashMap<>();
+		/**
+		 * Holds the flows with waiting jobs, in round-robin order.
+		 */
+		final ArrayDeque<Flow> active_ = new ArrayDeque<>();
+		/**
+		 * Holds whether the flow at the head of #active_ received its quantum for
+		 * this round already.
+		 */
+		boolean credited_ = false;
+	}
+
+	/**
+	 * Holds the network the jobs are dispatched to.
+	 */
+	private final Network network_;
+	/**
+	 * Holds the cost a workstation of weight 1 may dispatch per round.
+	 */
+	private final long quantum_;
+	/**
+	 * Holds the priority classes, the highest first.
+	 */
+	private final PriorityClass[] classes_;
+	/**
+	 * Holds the jobs which have not arrived yet, by arrival.
+	 */
+	private final PriorityQueue<Job> future_;
+	/**
+	 * Maps workstations on their weight; absent workstations weigh 1.
+	 */
+	private final HashMap<String, Integer> weights_;
+	/**
+	 * Maps workstations on the cost of their dispatched jobs.
+	 */
+	private final TreeMap<String, Long> served_;
+	/**
+	 * Maps workstations on the latencies of their dispatched jobs.
+	 */
+	private final TreeMap<String, ArrayList<Long>> latencies_;
+	/**
+	 * Holds the cost of all dispatched jobs.
+	 */
+	private long totalServed_;
+	/**
+	 * Holds the current time.
+	 */
+	private long now_;
+
+	/**
+	 * Construct a <em>PrintScheduler</em> dispatching jobs to #network.
+	 * <p>
+	 * <strong>Precondition:</strong> network.consistentNetwork() & (quantum > 0) &
+	 * (classes > 0);
+	 * </p>
+	 *
+	 * @param quantum the cost a workstation of weight 1 may send per round.
+	 * @param classes the number of priority classes.
+	 */
+	public PrintScheduler(Network network, long quantum, int classes) {
+		assert (quantum > 0) & (classes > 0);
+		network_ = network;
+		quantum_ = quantum;
+		classes_ = new PriorityClass[classes];
+		for (int i = 0; i < classes; i++) {
+			classes_[i] = new PriorityClass();
+		}
+		future_ = new PriorityQueue<>(Comparator.comparingLong((Job job) -> job.arrival_));
+		weights_ = new HashMap<>();
+		served_ = new TreeMap<>();
+		latencies_ = new TreeMap<>();
+		totalServed_ = 0;
+		now_ = 0;
+	}
+
+	/**
+	 * Give #workstation #weight times the quantum per round.
+	 * <p>
+	 * <strong>Precondition:</strong> weight > 0;
+	 * </p>
+	 */
+	public void setWeight(String workstation, int weight) {
+		assert weight > 0;
+		weights_.put(workstation, weight);
+	}
+
+	/**
+	 * Submit a job in which #workstation prints #document on #printer, arriving
+	 * at time #arrival in the given #priorityClass.
+	 * <p>
+	 * <strong>Precondition:</strong> network.hasWorkstation(workstation) &
+	 * (priorityClass >= 0) & (priorityClass < classes) & (arrival >= 0);
+	 * </p>
+	 */
+	public void submit(String workstation, String document, String printer, int priorityClass, long arrival) {
+		assert network_.hasWorkstation(workstation);
+		assert (priorityClass >= 0) & (priorityClass < classes_.length) & (arrival >= 0);
+		future_.add(new Job(workstation, document, printer, priorityClass, arrival));
+	}
+
+	/**
+	 * Dispatch all submitted jobs to the network, writing the report of every
+	 * request on #report.
+	 *
+	 * @return the time at which the last job was sent.
+	 */
+	public long run(Writer report) {
+		Job job;
+
+		while (true) {
+			admit();
+			job = next();
+			if (job == null) {
+				if (future_.isEmpty()) {
+					return now_;
+				}
+				now_ = Math.max(now_, future_.peek().arrival_);
+				continue;
+			}
+			network_.requestWorkstationPrintsDocument(job.workstation_, job.document_, job.printer_, report);
+			now_ += job.cost();
+			served_.merge(job.workstation_, job.cost(), Long::sum);
+			totalServed_ += job.cost();
+			latencies_.computeIfAbsent(job.workstation_, ws -> new ArrayList<>()).add(now_ - job.arrival_);
+		}
+	}
+
+	/**
+	 * Queue the jobs which have arrived by now with their workstation.
+	 */
+	private void admit() {
+		while (!future_.isEmpty() && (future_.peek().arrival_ <= now_)) {
+			Job job = future_.poll();
+			PriorityClass priorityClass = classes_[job.priorityClass_];
+			Flow flow = priorityClass.flows_.computeIfAbsent(job.workstation_, Flow::new);
+			if (flow.jobs_.isEmpty()) {
+				priorityClass.active_.addLast(flow);
+			}
+			flow.jobs_.addLast(job);
+		}
+	}
+
+	/**
+	 * Answer the next job to dispatch by deficit round-robin within the highest
+	 * priority class with waiting jobs, or null when no job is waiting.
+	 */
+	private Job next() {
+		for (PriorityClass priorityClass : classes_) {
+			while (!priorityClass.active_.isEmpty()) {
+				Flow flow = priorityClass.active_.peekFirst();
+				if (!priorityClass.credited_) {
+					flow.deficit_ += quantum_ * weights_.getOrDefault(flow.workstation_, 1);
+					priorityClass.credited_ = true;
+				}
+
+				Job job = flow.jobs_.peekFirst();
+				if (job.cost() <= flow.deficit_) {
+					flow.jobs_.pollFirst();
+					flow.deficit_ -= job.cost();
+					if (flow.jobs_.isEmpty()) {
+						flow.deficit_ = 0;
+						priorityClass.active_.pollFirst();
+						priorityClass.credited_ = false;
+					}
+					return job;
+				}
+
+				// not enough credit left this round: go to the back of the round
+				priorityClass.active_.addLast(priorityClass.active_.pollFirst());
+				priorityClass.credited_ = false;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Answer the fraction of the dispatched cost that was sent by #workstation.
+	 */
+	public double share(String workstation) {
+		return totalServed_ == 0 ? 0.0 : (double) served_.getOrDefault(workstation, 0L) / totalServed_;
+	}
+
+	/**
+	 * Answer the latency, from arrival to completion, below which the given
+	 * #fraction of the jobs of #workstation finished; e.g. 0.99 for the 99th
+	 * percentile. Answers 0 when #workstation dispatched no jobs.
+	 * <p>
+	 * <strong>Precondition:</strong> (fraction > 0) & (fraction <= 1);
+	 * </p>
+	 */
+	public long latencyPercentile(String workstation, double fraction) {
+		assert (fraction > 0) & (fraction <= 1);
+		ArrayList<Long> latencies = latencies_.get(workstation);
+		if (latencies == null) {
+			return 0;
+		}
+		ArrayList<Long> sorted = new ArrayList<>(latencies);
+		Collections.sort(sorted);
+		return sorted.get((int) Math.ceil(fraction * sorted.size()) - 1);
+	}
+
+	/**
+	 * Write the share and latencies of every workstation on the given #buf.
+	 */
+	public void printStatisticsOn(StringBuffer buf) {
+		for (String workstation : served_.keySet()) {
+			buf.append("Workstation ");
+			buf.append(workstation);
+			buf.append(String.format(Locale.ROOT, " -- share = %.3f -- p50 = %d -- p99 = %d -- max = %d\n",
+					share(workstation), latencyPercentile(workstation, 0.5), latencyPercentile(workstation, 0.99),
+					latencyPercentile(workstation, 1.0)));
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A <em>RequestClient</em> sends requests to a <em>RequestServer</em>. Requests
+ * are pipelined: every request answers a future at once, which completes when
+ * its response arrives.
+ * 
+ * @see RequestServer
+ */
+public class RequestClient implements Closeable {
+	/**
+	 * The response to one request.
+	 */
+	public static class Response {
+		/**
+		 * Holds the id of the request answered.
+		 */
+		public final int id_;
+		/**
+		 * Holds whether the request succeeded.
+		 */
+		public final boolean succeeded_;
+		/**
+		 * Holds the report of the request.
+		 */
+		public final String report_;
+
+		public Response(int id, boolean succeeded, String report) {
+			id_ = id;
+			succeeded_ = succeeded;
+			report_ = report;
+		}
+	}
+
+	/**
+	 * Holds the channel to the server.
+	 */
+	private final SocketChannel channel_;
+	/**
+	 * Holds the id of the next request.
+	 */
+	private final AtomicInteger nextId_ = new AtomicInteger();
+	/**
+	 * Maps the ids of the requests not answered yet on their future.
+	 */
+	private final Map<Integer, CompletableFuture<Response>> pending_ = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct a <em>RequestClient</em> connected to the server listening on
+	 * #address.
+	 */
+	public RequestClient(SocketAddress address) throws IOException {
+		if (address instanceof UnixDomainSocketAddress) {
+			channel_ = SocketChannel.open(StandardProtocolFamily.UNIX);
+		} else {
+			channel_ = SocketChannel.open();
+		}
+		channel_.connect(address);
+		Thread reader = new Thread(this::readResponses, "RequestClient reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Request #workstation to print #document on #printer.
+	 */
+	public CompletableFuture<Response> requestWorkstationPrintsDocument(String workstation, String document,
+			String printer) throws IOException {
+		byte[] ws = workstation.getBytes(StandardCharsets.UTF_8), pr = printer.getBytes(StandardCharsets.UTF_8),
+				doc = document.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer frame = ByteBuffer.allocate(4 + 4 + 1 + 12 + ws.length + pr.length + doc.length);
+		frame.putInt(frame.capacity() - 4).putInt(0).put(RequestServer.PRINT);
+		frame.putInt(ws.length).put(ws).putInt(pr.length).put(pr).putInt(doc.length).put(doc);
+		return send(frame);
+	}
+
+	/**
+	 * Request a broadcast.
+	 */
+	public CompletableFuture<Response> requestBroadcast() throws IOException {
+		ByteBuffer frame = ByteBuffer.allocate(4 + 4 + 1);
+		frame.putInt(frame.capacity() - 4).putInt(0).put(RequestServer.BROADCAST);
+		return send(frame);
+	}
+
+	/**
+	 * Number #frame, register its future and write it.
+	 */
+	private CompletableFuture<Response> send(ByteBuffer frame) throws IOException {
+		int id = nextId_.getAndIncrement();
+		CompletableFuture<Response> result = new CompletableFuture<>();
+
+		frame.putInt(4, id).flip();
+		pending_.put(id, result);
+		try {
+			RequestFrames.writeFully(channel_, frame);
+		} catch (IOException exc) {
+			pending_.remove(id);
+			throw exc;
+		}
+		return result;
+	}
+
+	/**
+	 * Complete the future of every response arriving, until the connection
+	 * closes; then fail the futures still pending.
+	 */
+	private void readResponses() {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel_)))) {
+			while (true) {
+				byte[] frame = new byte[in.readInt()];
+				in.readFully(frame);
+				ByteBuffer buffer = ByteBuffer.wrap(frame);
+				int id = buffer.getInt();
+				byte status = buffer.get();
+				String report = RequestFrames.getString(buffer);
+				CompletableFuture<Response> future = pending_.remove(id);
+				if (future == null) {
+					continue;
+				}
+				if (status == RequestServer.REJECTED) {
+					future.completeExceptionally(new IllegalArgumentException(report));
+				} else {
+					future.complete(new Response(id, status == RequestServer.SUCCEEDED, report));
+				}
+			}
+		} catch (IOException exc) {
+			for (CompletableFuture<Response> future : pending_.values()) {
+				future.completeExceptionally(exc);
+			}
+			pending_.clear();
+		}
+	}
+
+	/**
+	 * Close the connection; responses not yet received are lost.
+	 */
+	public void close() throws IOException {
+		channel_.close();
+	}
+}
@@ -0,0 +1,57 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <em>RequestFrames</em> reads and writes the frames <em>RequestServer</em>
+ * and <em>RequestClient</em> exchange.
+ * 
+ * @see RequestServer
+ */
+final class RequestFrames {
+	private RequestFrames() {
+	}
+
+	/**
+	 * Write all of #buffer on the blocking #connection. Writes on one connection
+	 * are serialised, so that frames never interleave.
+	 */
+	static void writeFully(SocketChannel connection, ByteBuffer buffer) throws IOException {
+		synchronized (connection) {
+			while (buffer.hasRemaining()) {
+				connection.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Answer the next string in #buffer.
+	 */
+	static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
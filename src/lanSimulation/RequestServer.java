@@ -0,0 +1,462 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A <em>RequestServer</em> keeps one <em>Network</em> alive and handles print
+ * and broadcast requests sent over a local socket, either a Unix-domain socket
+ * or a loopback TCP port.
+ * <p>
+ * Every message is a frame: a 4 byte big-endian length followed by that many
+ * bytes. A request frame holds a 4 byte request id chosen by the client and a
+ * kind byte, PRINT followed by the workstation, printer and document, or
+ * BROADCAST. A response frame holds the request id, a status byte (FAILED,
+ * SUCCEEDED or REJECTED) and the report of the request, or the reason it was
+ * rejected. Every request gets a response, also when handling it failed.
+ * Strings are a 4 byte length followed by UTF-8 bytes.
+ * </p>
+ * <p>
+ * Clients may pipeline requests without waiting for responses. A single
+ * selector thread reads requests from all connections and writes their
+ * responses whenever a connection can take them, so a client that does not
+ * read its responses only holds up itself. All requests are handled in arrival
+ * order on a single thread owning the network. A connection with MAX_PENDING
+ * requests not yet answered, or a server with MAX_QUEUED requests waiting for
+ * the network, is not read from until responses went out.
+ * </p>
+ */
+public class RequestServer implements Closeable {
+	public static final byte PRINT = 1;
+	public static final byte BROADCAST = 2;
+	public static final byte FAILED = 0;
+	public static final byte SUCCEEDED = 1;
+	public static final byte REJECTED = 2;
+	/**
+	 * Frames larger than this are a protocol error and close the connection.
+	 */
+	public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+	/**
+	 * The number of requests of one connection read but not yet answered.
+	 */
+	public static final int MAX_PENDING = 64;
+	/**
+	 * The number of requests of all connections waiting for the network.
+	 */
+	public static final int MAX_QUEUED = 1024;
+
+	/**
+	 * A <em>Connection</em> is a client connected to the server. Its input and
+	 * pending count are owned by the selector thread; responses are queued by
+	 * the network thread.
+	 */
+	private static class Connection {
+		/**
+		 * Holds the channel to the client.
+		 */
+		final SocketChannel channel_;
+		/**
+		 * Holds the registration of #channel_ with the selector.
+		 */
+		final SelectionKey key_;
+		/**
+		 * Holds the response frames not written yet, in order.
+		 */
+		final Queue<ByteBuffer> responses_ = new ConcurrentLinkedQueue<>();
+		/**
+		 * Holds the bytes read but not handled yet; grows to hold a whole frame.
+		 */
+		ByteBuffer input_ = ByteBuffer.allocate(8192);
+		/**
+		 * Holds the number of requests read but not answered yet.
+		 */
+		int pending_ = 0;
+
+		Connection(SocketChannel channel, SelectionKey key) {
+			channel_ = channel;
+			key_ = key;
+		}
+	}
+
+	/**
+	 * Holds the network the requests are handled on.
+	 */
+	private final Network network_;
+	/**
+	 * Holds the channel connections are accepted on.
+	 */
+	private final ServerSocketChannel server_;
+	/**
+	 * Holds the address #server_ listens on.
+	 */
+	private final SocketAddress address_;
+	/**
+	 * Holds the selector watching #server_ and the connections.
+	 */
+	private final Selector selector_;
+	/**
+	 * Holds the single thread owning #network_, which handles the requests.
+	 */
+	private final ThreadPoolExecutor networkThread_;
+	/**
+	 * Holds the number of requests waiting for #networkThread_.
+	 */
+	private final AtomicInteger queued_ = new AtomicInteger();
+	/**
+	 * Holds the open connections; owned by the selector thread.
+	 */
+	private final ArrayList<Connection> connections_ = new ArrayList<>();
+	/**
+	 * Holds the selector thread, or null until #start.
+	 */
+	private Thread selectorThread_ = null;
+	/**
+	 * Holds whether #receiver was closed.
+	 */
+	private volatile boolean closed_ = false;
+
+	/**
+	 * Construct a <em>RequestServer</em> for #network, listening on #address: a
+	 * UnixDomainSocketAddress or a loopback InetSocketAddress. Call #start to
+	 * accept connections. A socket file left at #address by a server that
+	 * crashed is replaced.
+	 * <p>
+	 * <strong>Precondition:</strong> network.consistentNetwork();
+	 * </p>
+	 */
+	public RequestServer(Network network, SocketAddress address) throws IOException {
+		assert network.consistentNetwork();
+		network_ = network;
+		if (address instanceof UnixDomainSocketAddress) {
+			server_ = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			deleteStaleSocket((UnixDomainSocketAddress) address);
+		} else {
+			server_ = ServerSocketChannel.open();
+		}
+		server_.bind(address);
+		server_.configureBlocking(false);
+		address_ = server_.getLocalAddress();
+		selector_ = Selector.open();
+		networkThread_ = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(MAX_QUEUED), runnable -> {
+					Thread thread = new Thread(runnable, "RequestServer network");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Answer the address #receiver listens on, e.g. to learn the port chosen for
+	 * port 0.
+	 */
+	public SocketAddress address() {
+		return address_;
+	}
+
+	/**
+	 * Answer the socket address for #where: a port number on the loopback
+	 * interface, or else the path of a Unix-domain socket.
+	 */
+	public static SocketAddress addressFor(String where) {
+		if (where.matches("\\d+")) {
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(where));
+		}
+		return UnixDomainSocketAddress.of(where);
+	}
+
+	/**
+	 * Delete the socket file at #address when no server listens on it, such as
+	 * the one left behind by a server that crashed, so that it can be bound
+	 * again. A socket still served is left alone, and binding it fails.
+	 */
+	private static void deleteStaleSocket(UnixDomainSocketAddress address) throws IOException {
+		if (!Files.exists(address.getPath())) {
+			return;
+		}
+		try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+			probe.connect(address);
+		} catch (IOException exc) {
+			Files.deleteIfExists(address.getPath());
+		}
+	}
+
+	/**
+	 * Accept connections and serve them on a background thread until #receiver
+	 * is closed.
+	 */
+	public void start() throws IOException {
+		server_.register(selector_, SelectionKey.OP_ACCEPT);
+		selectorThread_ = new Thread(this::select, "RequestServer selector");
+		selectorThread_.setDaemon(true);
+		selectorThread_.start();
+	}
+
+	/**
+	 * Accept connections, read requests and write responses as the sockets
+	 * allow, until #receiver is closed.
+	 */
+	private void select() {
+		try {
+			while (!closed_) {
+				selector_.select();
+				for (SelectionKey key : selector_.selectedKeys()) {
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Connection connection = (Connection) key.attachment();
+					try {
+						if (key.isReadable() && (connection.channel_.read(connection.input_) < 0)) {
+							drop(connection);
+							continue;
+						}
+						if (key.isWritable()) {
+							writeResponses(connection);
+						}
+					} catch (IOException exc) {
+						drop(connection);
+					}
+				}
+				selector_.selectedKeys().clear();
+				for (Connection connection : new ArrayList<>(connections_)) {
+					dispatchRequests(connection);
+					if (connection.key_.isValid()) {
+						int ops = connection.responses_.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+						if (mayRead(connection)) {
+							ops |= SelectionKey.OP_READ;
+						}
+						connection.key_.interestOps(ops);
+					}
+				}
+			}
+		} catch (IOException exc) {
+			// the selector failed; stop serving
+		} finally {
+			for (Connection connection : new ArrayList<>(connections_)) {
+				drop(connection);
+			}
+			try {
+				selector_.close();
+			} catch (IOException ignored) {
+
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = server_.accept();
+		if (channel != null) {
+			channel.configureBlocking(false);
+			SelectionKey key = channel.register(selector_, SelectionKey.OP_READ);
+			Connection connection = new Connection(channel, key);
+			key.attach(connection);
+			connections_.add(connection);
+		}
+	}
+
+	/**
+	 * Answer whether another request of #connection may be handed to the
+	 * network thread.
+	 */
+	private boolean mayRead(Connection connection) {
+		return (connection.pending_ < MAX_PENDING) && (queued_.get() < MAX_QUEUED);
+	}
+
+	/**
+	 * Hand the complete request frames read from #connection to the network
+	 * thread, as long as #mayRead allows.
+	 */
+	private void dispatchRequests(Connection connection) {
+		if (!connection.key_.isValid()) {
+			return;
+		}
+		ByteBuffer input = connection.input_;
+		input.flip();
+		while (mayRead(connection) && (input.remaining() >= 4)) {
+			int length = input.getInt(input.position());
+			if ((length < 5) || (length > MAX_FRAME_SIZE)) {
+				drop(connection);
+				return;
+			}
+			if (input.remaining() < 4 + length) {
+				if (input.capacity() < 4 + length) {
+					ByteBuffer larger = ByteBuffer.allocate(4 + length);
+					larger.put(input);
+					connection.input_ = larger;
+					return;
+				}
+				break;
+			}
+			input.getInt();
+			byte[] frame = new byte[length];
+			input.get(frame);
+			connection.pending_++;
+			queued_.incrementAndGet();
+			networkThread_.execute(() -> handle(connection, ByteBuffer.wrap(frame)));
+		}
+		input.compact();
+	}
+
+	/**
+	 * Write the queued responses of #connection until the socket takes no more.
+	 */
+	private void writeResponses(Connection connection) throws IOException {
+		ByteBuffer response;
+		while ((response = connection.responses_.peek()) != null) {
+			connection.channel_.write(response);
+			if (response.hasRemaining()) {
+				return;
+			}
+			connection.responses_.poll();
+			connection.pending_--;
+		}
+	}
+
+	private void drop(Connection connection) {
+		connections_.remove(connection);
+		connection.key_.cancel();
+		try {
+			connection.channel_.close();
+		} catch (IOException ignored) {
+
+		}
+	}
+
+	/**
+	 * Handle the request in #frame on the network thread, and queue the response
+	 * for #connection. Whatever goes wrong, the client gets a response.
+	 */
+	private void handle(Connection connection, ByteBuffer frame) {
+		int id = frame.getInt();
+		byte kind = frame.get(), status;
+		StringWriter report = new StringWriter(500);
+
+		try {
+			status = handle(kind, frame, report);
+		} catch (BufferUnderflowException | NegativeArraySizeException exc) {
+			status = REJECTED;
+			report.getBuffer().setLength(0);
+			report.write("Malformed request");
+		} catch (Throwable exc) {
+			status = REJECTED;
+			report.getBuffer().setLength(0);
+			report.write("Request failed: " + exc);
+		}
+
+		byte[] text = report.toString().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer response = ByteBuffer.allocate(4 + 4 + 1 + 4 + text.length);
+		response.putInt(response.capacity() - 4).putInt(id).put(status).putInt(text.length).put(text).flip();
+		connection.responses_.add(response);
+		queued_.decrementAndGet();
+		selector_.wakeup();
+	}
+
+	/**
+	 * Handle the request of #kind whose arguments follow in #frame, writing its
+	 * report on #report, and answer the status of the response.
+	 */
+	private byte handle(byte kind, ByteBuffer frame, StringWriter report) {
+		byte status;
+
+		if (kind == BROADCAST) {
+			status = network_.requestBroadcast(report) ? SUCCEEDED : FAILED;
+		} else if (kind == PRINT) {
+			String workstation = RequestFrames.getString(frame), printer = RequestFrames.getString(frame),
+					document = RequestFrames.getString(frame);
+			if (network_.hasWorkstation(workstation)) {
+				status = network_.requestWorkstationPrintsDocument(workstation, document, printer, report) ? SUCCEEDED
+						: FAILED;
+			} else {
+				status = REJECTED;
+				report.write("Unknown workstation '" + workstation + "'");
+			}
+		} else {
+			status = REJECTED;
+			report.write("Unknown request kind " + kind);
+		}
+		return status;
+	}
+
+	/**
+	 * Serve #network on #where (see #addressFor) until the virtual machine is
+	 * stopped.
+	 */
+	public static void serve(Network network, String where) throws IOException, InterruptedException {
+		RequestServer server = new RequestServer(network, addressFor(where));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				server.close();
+			} catch (IOException ignored) {
+
+			}
+		}));
+		server.start();
+		System.out.println("Serving on " + server.address());
+		new CountDownLatch(1).await();
+	}
+
+	/**
+	 * Stop accepting connections, close the open ones and stop the network
+	 * thread. Requests not handled yet are dropped.
+	 */
+	public void close() throws IOException {
+		closed_ = true;
+		selector_.wakeup();
+		if (selectorThread_ != null) {
+			try {
+				selectorThread_.join(10000);
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		} else {
+			selector_.close();
+		}
+		server_.close();
+		networkThread_.shutdownNow();
+		if (address_ instanceof UnixDomainSocketAddress) {
+			Files.deleteIfExists(((UnixDomainSocketAddress) address_).getPath());
+		}
+	}
+}
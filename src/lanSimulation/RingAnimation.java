@@ -0,0 +1,280 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A <em>RingAnimation</em> observes a <em>Network</em> and turns the packets
+ * travelling over it into an animation of SVG frames, embedded in an HTML page.
+ * <p>
+ * The cost of the animation does not depend on the size of the ring nor on the
+ * number of packets. The ring is drawn as a fixed number of arcs, each
+ * collapsing a segment of consecutive nodes and coloured by the traffic it saw
+ * (level of detail); segments where packets were lost are marked. Events at
+ * nodes off the ring, such as bypassed nodes, count towards the frame but are
+ * not drawn. A frame covers a fixed number of events, and only every
+ * n-th frame is rendered, the skipped frames adding to the traffic of the
+ * next rendered one. When more than the maximum number of frames are
+ * rendered, every other frame is dropped and n is doubled (frame sampling).
+ * </p>
+ */
+public class RingAnimation implements NetworkObserver {
+	private static final int SIZE = 400;
+	private static final int RADIUS = 160;
+
+	/**
+	 * Holds the observed network, which answers the current positions of its
+	 * nodes.
+	 */
+	private final Network network_;
+	/**
+	 * Holds the positions of the nodes on the ring during the current frame.
+	 */
+	private RingIndex ring_;
+	/**
+	 * Holds the number of arcs the ring is drawn with.
+	 */
+	private final int segments_;
+	/**
+	 * Holds the number of events covered by one frame.
+	 */
+	private final int eventsPerFrame_;
+	/**
+	 * Holds the maximum number of rendered frames kept.
+	 */
+	private final int maxFrames_;
+	/**
+	 * Holds, per segment, the number of hops since the last rendered frame.
+	 */
+	private final long[] traffic_;
+	/**
+	 * Holds, per segment, the number of packets that stopped there since the last
+	 * rendered frame.
+	 */
+	private final long[] arrivals_;
+	/**
+	 * Holds, per segment, the number of packets lost there since the last
+	 * rendered frame.
+	 */
+	private final long[] losses_;
+	/**
+	 * Holds the rendered frames.
+	 */
+	private final ArrayList<String> frames_;
+	/**
+	 * Holds the number of events in the current frame.
+	 */
+	private int events_;
+	/**
+	 * Holds the number of the current frame.
+	 */
+	private long frame_;
+	/**
+	 * Holds how many frames make up one rendered frame.
+	 */
+	private long sampleEvery_;
+
+	/**
+	 * Construct a <em>RingAnimation</em> of #network.
+	 * <p>
+	 * <strong>Precondition:</strong> network.consistentNetwork() & (segments > 0)
+	 * & (eventsPerFrame > 0) & (maxFrames > 1);
+	 * </p>
+	 *
+	 * @param segments       the number of arcs the ring is drawn with.
+	 * @param eventsPerFrame the number of hops and arrivals covered by a frame.
+	 * @param maxFrames      the maximum number of frames kept.
+	 */
+	public RingAnimation(Network network, int segments, int eventsPerFrame, int maxFrames) {
+		assert (segments > 0) & (eventsPerFrame > 0) & (maxFrames > 1);
+
+		network_ = network;
+		ring_ = network.ringIndex();
+		segments_ = Math.min(segments, ring_.size());
+		eventsPerFrame_ = eventsPerFrame;
+		maxFrames_ = maxFrames;
+		traffic_ = new long[segments_];
+		arrivals_ = new long[segments_];
+		losses_ = new long[segments_];
+		frames_ = new ArrayList<>(maxFrames);
+		events_ = 0;
+		frame_ = 0;
+		sampleEvery_ = 1;
+	}
+
+	public void packetPassed(Node node, Packet packet) {
+		count(traffic_, node);
+	}
+
+	public void packetArrived(Node node, Packet packet, boolean accepted) {
+		count(arrivals_, node);
+	}
+
+	public void packetLost(Node node, Packet packet) {
+		count(losses_, node);
+	}
+
+	/**
+	 * Count an event at #node in #perSegment, unless #node is off the ring.
+	 */
+	private void count(long[] perSegment, Node node) {
+		int offset = ring_.offsetOf(node);
+		if (offset >= 0) {
+			perSegment[(int) ((long) offset * segments_ / ring_.size())]++;
+		}
+		tick();
+	}
+
+	private void tick() {
+		if (++events_ == eventsPerFrame_) {
+			endFrame();
+		}
+	}
+
+	/**
+	 * End the current frame, and take the positions of the nodes as they are now
+	 * for the next one; nodes linked in or out since move the segments along.
+	 */
+	private void endFrame() {
+		if (frame_ % sampleEvery_ == 0) {
+			frames_.add(render());
+			clear();
+			if (frames_.size() > maxFrames_) {
+				thin();
+			}
+		}
+		events_ = 0;
+		frame_++;
+		ring_ = network_.ringIndex();
+	}
+
+	private void clear() {
+		Arrays.fill(traffic_, 0);
+		Arrays.fill(arrivals_, 0);
+		Arrays.fill(losses_, 0);
+	}
+
+	/**
+	 * Drop every other rendered frame, and render half as often from now on.
+	 */
+	private void thin() {
+		int kept = 0;
+		for (int i = 0; i < frames_.size(); i += 2) {
+			frames_.set(kept++, frames_.get(i));
+		}
+		frames_.subList(kept, frames_.size()).clear();
+		sampleEvery_ *= 2;
+	}
+
+	/**
+	 * Render the events not yet covered by a frame as a last frame.
+	 */
+	public void finish() {
+		if (events_ > 0) {
+			frames_.add(render());
+			clear();
+			events_ = 0;
+		}
+	}
+
+	/**
+	 * Answer the number of rendered frames.
+	 */
+	public int frameCount() {
+		return frames_.size();
+	}
+
+	/**
+	 * Answer how many frames currently make up one rendered frame.
+	 */
+	public long sampleEvery() {
+		return sampleEvery_;
+	}
+
+	private String render() {
+		StringBuilder svg = new StringBuilder(128 + segments_ * 96);
+		long max = 1;
+
+		for (int i = 0; i < segments_; i++) {
+			max = Math.max(max, traffic_[i]);
+		}
+		svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(SIZE).append("\" height=\"")
+				.append(SIZE).append("\">");
+		svg.append("<text x=\"10\" y=\"20\">frame ").append(frame_).append("</text>");
+		for (int i = 0; i < segments_; i++) {
+			int heat = (int) (255 * traffic_[i] / max);
+			String colour = traffic_[i] == 0 ? "#cccccc" : "rgb(" + heat + ",0," + (255 - heat) + ")";
+			if (segments_ == 1) {
+				svg.append(String.format(Locale.ROOT,
+						"<circle cx=\"%d\" cy=\"%d\" r=\"%d\" fill=\"none\" stroke=\"%s\" stroke-width=\"8\"/>",
+						SIZE / 2, SIZE / 2, RADIUS, colour));
+			} else {
+				double from = 2 * Math.PI * i / segments_, to = 2 * Math.PI * (i + 1) / segments_;
+				svg.append(String.format(Locale.ROOT,
+						"<path d=\"M %.1f %.1f A %d %d 0 0 1 %.1f %.1f\" fill=\"none\" stroke=\"%s\" stroke-width=\"8\"/>",
+						x(from, RADIUS), y(from, RADIUS), RADIUS, RADIUS, x(to, RADIUS), y(to, RADIUS), colour));
+			}
+			if (arrivals_[i] > 0) {
+				double middle = 2 * Math.PI * (i + 0.5) / segments_;
+				svg.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"4\" fill=\"green\"/>",
+						x(middle, RADIUS + 14), y(middle, RADIUS + 14)));
+			}
+			if (losses_[i] > 0) {
+				double middle = 2 * Math.PI * (i + 0.5) / segments_;
+				svg.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"4\" fill=\"red\"/>",
+						x(middle, RADIUS - 14), y(middle, RADIUS - 14)));
+			}
+		}
+		svg.append("</svg>");
+		return svg.toString();
+	}
+
+	private static double x(double angle, int radius) {
+		return SIZE / 2 + radius * Math.sin(angle);
+	}
+
+	private static double y(double angle, int radius) {
+		return SIZE / 2 - radius * Math.cos(angle);
+	}
+
+	/**
+	 * Write an HTML page showing the rendered frames one after the other on the
+	 * given #buf.
+	 */
+	public void printHTMLOn(StringBuffer buf) {
+		buf.append("<HTML>\n<HEAD>\n<TITLE>LAN Simulation</TITLE>\n</HEAD>\n<BODY>\n<H1>LAN SIMULATION</H1>");
+		buf.append("\n\n<DIV ID=\"frames\">");
+		for (int i = 0; i < frames_.size(); i++) {
+			buf.append("\n<DIV CLASS=\"frame\" STYLE=\"display:");
+			buf.append(i == 0 ? "block" : "none");
+			buf.append("\">");
+			buf.append(frames_.get(i));
+			buf.append("</DIV>");
+		}
+		buf.append("\n</DIV>\n<SCRIPT>\nvar frames = document.getElementsByClassName(\"frame\"), shown = 0;\n");
+		buf.append("setInterval(function () {\n\tframes[shown].style.display = \"none\";\n");
+		buf.append("\tshown = (shown + 1) % frames.length;\n\tframes[shown].style.display = \"block\";\n}, 100);\n");
+		buf.append("</SCRIPT>\n\n</BODY>\n</HTML>\n");
+	}
+}
@@ -0,0 +1,312 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * A <em>RingMonitor</em> watches a <em>Network</em> for failed nodes and
+ * repairs the token ring by bypassing them, like the active monitor of 802.5.
+ * The monitor only learns about failures from what it observes: a packet lost
+ * at a failed node, or the token not coming back. Whenever the token has not
+ * come back for the detection timeout, the monitor sends it around the ring as
+ * a broadcast; the node the token is lost at is detected as failed and linked
+ * out of the ring in constant time, after which the token is sent again until
+ * it travels the whole ring.
+ * <p>
+ * Print requests passed through the monitor whose packet is lost during an
+ * outage are retried once the ring is repaired. An outage also ends when a
+ * packet, such as the token, is seen passing the node again, for instance
+ * after it was restored directly on the network. The monitor measures the
+ * recovery time of every failure, from the first packet lost at the node, and
+ * the packets lost and retried. Time is expressed in ticks and driven by the
+ * caller through #advanceTo.
+ * </p>
+ * <p>
+ * The monitor observes the network, next to any other observer.
+ * </p>
+ */
+public class RingMonitor implements NetworkObserver {
+	/**
+	 * A print request waiting to be retried.
+	 */
+	private static class Job {
+		/**
+		 * Holds the name of the workstation requesting the print.
+		 */
+		final String workstation_;
+		/**
+		 * Holds the document to print.
+		 */
+		final String document_;
+		/**
+		 * Holds the name of the printer to print on.
+		 */
+		final String printer_;
+
+		Job(String workstation, String document, String printer) {
+			workstation_ = workstation;
+			document_ = document;
+			printer_ = printer;
+		}
+	}
+
+	/**
+	 * Holds the network watched.
+	 */
+	private final Network network_;
+	/**
+	 * Holds the number of ticks the token may stay away before it is sent around
+	 * the ring.
+	 */
+	private final long detectionTimeout_;
+	/**
+	 * Maps the names of the nodes packets were lost at, and which are neither
+	 * bypassed nor seen passing a packet since, on the time they failed or the
+	 * first packet was lost there.
+	 */
+	private final LinkedHashMap<String, Long> outages_;
+	/**
+	 * Holds the print requests whose packet was lost.
+	 */
+	private final ArrayList<Job> retries_;
+	/**
+	 * Holds the current time.
+	 */
+	private long now_;
+	/**
+	 * Holds the time the token last travelled the whole ring.
+	 */
+	private long tokenSeen_;
+	/**
+	 * Holds the number of packets lost on failed nodes.
+	 */
+	private long lost_;
+	/**
+	 * Holds the number of print requests retried.
+	 */
+	private long retried_;
+	/**
+	 * Holds the number of outages ended, and their total and longest duration.
+	 */
+	private long recoveries_, recoveryTicks_, maxRecoveryTicks_;
+	/**
+	 * Holds whether an outage ended since the lost print requests were last
+	 * retried.
+	 */
+	private boolean repaired_;
+	/**
+	 * Holds whether the packet of the request in progress was lost.
+	 */
+	private boolean lastLost_;
+	/**
+	 * Holds whether the packet in progress is the token sent by the monitor.
+	 */
+	private boolean sendingToken_;
+	/**
+	 * Holds the node the token was lost at, or null.
+	 */
+	private Node tokenLostAt_;
+
+	/**
+	 * Construct a <em>RingMonitor</em> for #network, which detects a failure
+	 * once the token did not come back for #detectionTimeout ticks.
+	 * <p>
+	 * <strong>Precondition:</strong> network.consistentNetwork() &
+	 * (detectionTimeout > 0);
+	 * </p>
+	 */
+	public RingMonitor(Network network, long detectionTimeout) {
+		assert detectionTimeout > 0;
+		network_ = network;
+		detectionTimeout_ = detectionTimeout;
+		outages_ = new LinkedHashMap<>();
+		retries_ = new ArrayList<>();
+		now_ = 0;
+		tokenSeen_ = 0;
+		repaired_ = false;
+		network.addObserver(this);
+	}
+
+	/**
+	 * Let the node named #name fail now. The monitor is not told about the
+	 * failure, and detects it like any other; only the recovery time is measured
+	 * from now.
+	 */
+	public void fail(String name) {
+		network_.fail(name);
+		outages_.putIfAbsent(name, now_);
+	}
+
+	/**
+	 * Repair the node named #name now, and link it back in the token ring.
+	 */
+	public void recover(String name) {
+		outages_.remove(name);
+		network_.restore(name);
+	}
+
+	/**
+	 * Advance the clock to #now. When the token did not come back for the
+	 * detection timeout, it is sent around the ring, and every failed node it is
+	 * lost at is bypassed. Once an outage ended, the lost print requests are
+	 * retried on #report.
+	 * <p>
+	 * <strong>Precondition:</strong> now >= current time;
+	 * </p>
+	 */
+	public void advanceTo(long now, Writer report) {
+		assert now >= now_;
+		now_ = now;
+		if (tokenSeen_ + detectionTimeout_ <= now) {
+			Node failed;
+			while ((failed = sendToken()) != null) {
+				if (!network_.bypass(failed.name_)) {
+					break;
+				}
+				recovered(failed);
+			}
+		}
+
+		if (repaired_ && !retries_.isEmpty()) {
+			ArrayList<Job> jobs = new ArrayList<>(retries_);
+			retries_.clear();
+			for (Job job : jobs) {
+				retried_++;
+				requestWorkstationPrintsDocument(job.workstation_, job.document_, job.printer_, report);
+			}
+		}
+		repaired_ = false;
+	}
+
+	/**
+	 * End the outage of #node now, and count its recovery time.
+	 */
+	private void recovered(Node node) {
+		Long since = outages_.remove(node.name_);
+		long recovery = now_ - ((since == null) ? now_ : since);
+		recoveries_++;
+		recoveryTicks_ += recovery;
+		maxRecoveryTicks_ = Math.max(maxRecoveryTicks_, recovery);
+		repaired_ = true;
+	}
+
+	/**
+	 * Send the token around the ring.
+	 *
+	 * @return Answer the node the token was lost at, or null when it travelled
+	 *         the whole ring.
+	 */
+	private Node sendToken() {
+		sendingToken_ = true;
+		tokenLostAt_ = null;
+		try {
+			network_.requestBroadcast(Writer.nullWriter());
+		} finally {
+			sendingToken_ = false;
+		}
+		if (tokenLostAt_ == null) {
+			tokenSeen_ = now_;
+		}
+		return tokenLostAt_;
+	}
+
+	/**
+	 * Forward the print request to the network. When its packet is lost, the
+	 * request is retried after the next repair.
+	 *
+	 * @see Network#requestWorkstationPrintsDocument(String, String, String, Writer)
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document, String printer,
+			Writer report) {
+		lastLost_ = false;
+		boolean result = network_.requestWorkstationPrintsDocument(workstation, document, printer, report);
+		if (lastLost_) {
+			retries_.add(new Job(workstation, document, printer));
+		}
+		return result;
+	}
+
+	public void packetPassed(Node node, Packet packet) {
+		if (!outages_.isEmpty() && outages_.containsKey(node.name_)) {
+			recovered(node);
+		}
+	}
+
+	public void packetArrived(Node node, Packet packet, boolean accepted) {
+	}
+
+	public void packetLost(Node node, Packet packet) {
+		outages_.putIfAbsent(node.name_, now_);
+		if (sendingToken_) {
+			tokenLostAt_ = node;
+			return;
+		}
+		lost_++;
+		lastLost_ = true;
+	}
+
+	/**
+	 * Answer the number of packets lost on failed nodes.
+	 */
+	public long lost() {
+		return lost_;
+	}
+
+	/**
+	 * Answer the number of print requests retried after a repair.
+	 */
+	public long retried() {
+		return retried_;
+	}
+
+	/**
+	 * Answer the number of print requests still waiting for a repair.
+	 */
+	public int pendingRetries() {
+		return retries_.size();
+	}
+
+	/**
+	 * Answer the number of outages ended, by a bypass or by the node passing
+	 * packets again.
+	 */
+	public long recoveries() {
+		return recoveries_;
+	}
+
+	/**
+	 * Answer the mean time from failure, or from the first packet lost at the
+	 * failed node, to the end of the outage, or 0 when nothing recovered.
+	 */
+	public double meanRecoveryTime() {
+		return recoveries_ == 0 ? 0.0 : (double) recoveryTicks_ / recoveries_;
+	}
+
+	/**
+	 * Answer the longest time from failure to the end of the outage.
+	 */
+	public long maxRecoveryTime() {
+		return maxRecoveryTicks_;
+	}
+}
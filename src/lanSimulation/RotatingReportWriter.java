@@ -0,0 +1,513 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A <em>RotatingReportWriter</em> is a report <em>Writer</em> for long running
+ * simulations. The report is compressed with gzip on a background thread, into
+ * segment files "baseName.000000.gz", "baseName.000001.gz", ... A new segment
+ * is started when the current one holds #maxSegmentBytes bytes of report, and
+ * the current one is finished once it is #maxSegmentMillis old, also when no
+ * text arrives; only the last #maxSegments are kept. The file "baseName.index"
+ * lists every segment kept with its offset in the report and the time span it
+ * covers, so that a time window can be read back (see #segmentsBetween) without
+ * decompressing the other segments.
+ * <p>
+ * A segment is listed once it is finished: the segment still being written
+ * only appears in the index when it rotates, or when the writer is closed.
+ * Every chunk is flushed to its segment file, so after a crash the text handed
+ * over to the segment being written can still be read from its file, up to an
+ * EOFException where its gzip trailer is missing. Text not handed over yet is
+ * lost.
+ * </p>
+ * <p>
+ * Text is handed to the background thread in chunks, on #flush or when a chunk
+ * is full. Since a <em>Network</em> flushes its report on every hop, a network
+ * should be handed the writer answered by #batching, whose #flush only hands
+ * over the text collected once it reaches a chunk, or is a second old.
+ * </p>
+ */
+public class RotatingReportWriter extends Writer {
+	/**
+	 * The number of characters collected before they are handed over.
+	 */
+	public static final int CHUNK_SIZE = 64 * 1024;
+	/**
+	 * The age after which the #flush of #batching hands over the characters
+	 * collected.
+	 */
+	public static final long CHUNK_MILLIS = 1000;
+	/**
+	 * The number of chunks that may wait for the background thread before
+	 * writers block.
+	 */
+	private static final int QUEUE_CAPACITY = 16;
+	/**
+	 * The chunk telling the background thread to finish.
+	 */
+	private static final Chunk END = new Chunk(new byte[0], 0, 0);
+
+	/**
+	 * A <em>Segment</em> is one compressed file of the report.
+	 */
+	public static class Segment {
+		/**
+		 * Holds the number of the segment, counting from 0 in the report.
+		 */
+		public final int number_;
+		/**
+		 * Holds the compressed file of the segment.
+		 */
+		public final File file_;
+		/**
+		 * Holds the offset in the report, in bytes, at which the segment starts.
+		 */
+		public final long offset_;
+		/**
+		 * Holds the number of bytes of report in the segment, before compression.
+		 */
+		public final long bytes_;
+		/**
+		 * Holds the time the first text of the segment was written.
+		 */
+		public final long fromMillis_;
+		/**
+		 * Holds the time the last text of the segment was written.
+		 */
+		public final long toMillis_;
+
+		public Segment(int number, File file, long offset, long bytes, long fromMillis, long toMillis) {
+			number_ = number;
+			file_ = file;
+			offset_ = offset;
+			bytes_ = bytes;
+			fromMillis_ = fromMillis;
+			toMillis_ = toMillis;
+		}
+
+		/**
+		 * Answer a reader on the decompressed text of #receiver.
+		 */
+		public Reader openReader() throws IOException {
+			return new InputStreamReader(new GZIPInputStream(new FileInputStream(file_)), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * A <em>Chunk</em> is report text handed to the background thread, with the
+	 * times its first and its last text were written.
+	 */
+	private static class Chunk {
+		/**
+		 * Holds the text, encoded in UTF-8.
+		 */
+		final byte[] bytes_;
+		/**
+		 * Holds the time the first text of the chunk was written.
+		 */
+		final long fromMillis_;
+		/**
+		 * Holds the time the last text of the chunk was written.
+		 */
+		final long toMillis_;
+
+		Chunk(byte[] bytes, long fromMillis, long toMillis) {
+			bytes_ = bytes;
+			fromMillis_ = fromMillis;
+			toMillis_ = toMillis;
+		}
+	}
+
+	/**
+	 * Holds the directory the segments and the index are written in.
+	 */
+	private final File directory_;
+	/**
+	 * Holds the name the segment and index files start with.
+	 */
+	private final String baseName_;
+	/**
+	 * Holds the bytes of report after which a new segment starts.
+	 */
+	private final long maxSegmentBytes_;
+	/**
+	 * Holds the age after which a segment is finished.
+	 */
+	private final long maxSegmentMillis_;
+	/**
+	 * Holds the number of segments kept, or 0 to keep all.
+	 */
+	private final int maxSegments_;
+	/**
+	 * Holds the text collected but not handed over yet.
+	 */
+	private final StringBuilder buffer_ = new StringBuilder(CHUNK_SIZE);
+	/**
+	 * Holds the time the first text in #buffer_ was written.
+	 */
+	private long bufferMillis_;
+	/**
+	 * Holds the time text was last written.
+	 */
+	private long lastWriteMillis_;
+	/**
+	 * Holds the chunks handed over and not compressed yet.
+	 */
+	private final BlockingQueue<Chunk> queue_ = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	/**
+	 * Holds the background thread compressing the chunks.
+	 */
+	private final Thread compressor_;
+	/**
+	 * Holds the failure of the background thread, or null.
+	 */
+	private volatile IOException failure_ = null;
+	/**
+	 * Holds whether #receiver was closed.
+	 */
+	private volatile boolean closed_ = false;
+
+	// owned by the background thread
+	/**
+	 * Holds the finished segments kept, oldest first.
+	 */
+	private final List<Segment> segments_ = new ArrayList<>();
+	/**
+	 * Holds the stream on the segment being written, or null.
+	 */
+	private OutputStream segment_ = null;
+	/**
+	 * Holds the number of the segment being written, or written next.
+	 */
+	private int segmentNumber_ = 0;
+	/**
+	 * Holds the offset in the report, the bytes of report and the times of the
+	 * first and the last text of the segment being written.
+	 */
+	private long segmentOffset_ = 0, segmentBytes_ = 0, segmentFrom_ = 0, segmentTo_ = 0;
+
+	/**
+	 * Construct a <em>RotatingReportWriter</em> writing segments named after
+	 * #baseName in #directory.
+	 * <p>
+	 * <strong>Precondition:</strong> directory.isDirectory() & (maxSegmentBytes >
+	 * 0) & (maxSegmentMillis > 0) & (maxSegments >= 0);
+	 * </p>
+	 * 
+	 * @param maxSegmentBytes  Bytes of report after which a new segment starts.
+	 * @param maxSegmentMillis Age after which a segment is finished.
+	 * @param maxSegments      Number of segments kept, or 0 to keep all.
+	 */
+	public RotatingReportWriter(File directory, String baseName, long maxSegmentBytes, long maxSegmentMillis,
+			int maxSegments) {
+		assert directory.isDirectory() & (maxSegmentBytes > 0) & (maxSegmentMillis > 0) & (maxSegments >= 0);
+		directory_ = directory;
+		baseName_ = baseName;
+		maxSegmentBytes_ = maxSegmentBytes;
+		maxSegmentMillis_ = maxSegmentMillis;
+		maxSegments_ = maxSegments;
+		compressor_ = new Thread(this::compress, "RotatingReportWriter " + baseName);
+		compressor_.setDaemon(true);
+		compressor_.start();
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		lastWriteMillis_ = System.currentTimeMillis();
+		if (buffer_.length() == 0) {
+			bufferMillis_ = lastWriteMillis_;
+		}
+		buffer_.append(cbuf, off, len);
+		if (buffer_.length() >= CHUNK_SIZE) {
+			handOver();
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+		lastWriteMillis_ = System.currentTimeMillis();
+		if (buffer_.length() == 0) {
+			bufferMillis_ = lastWriteMillis_;
+		}
+		buffer_.append(str, off, off + len);
+		if (buffer_.length() >= CHUNK_SIZE) {
+			handOver();
+		}
+	}
+
+	/**
+	 * Hand the text collected over to the background thread.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if (buffer_.length() > 0) {
+			handOver();
+		}
+	}
+
+	/**
+	 * Hand the text collected over to the background thread if it is older than
+	 * CHUNK_MILLIS.
+	 */
+	private void flushIfDue() throws IOException {
+		ensureOpen();
+		if ((buffer_.length() > 0) && (System.currentTimeMillis() - bufferMillis_ >= CHUNK_MILLIS)) {
+			handOver();
+		}
+	}
+
+	/**
+	 * Answer a <em>Writer</em> on #receiver to hand to a <em>Network</em>. Its
+	 * #flush only hands over the text collected once it is CHUNK_MILLIS old, so
+	 * that flushing on every hop still hands over whole chunks.
+	 */
+	public Writer batching() {
+		return new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				RotatingReportWriter.this.write(cbuf, off, len);
+			}
+
+			@Override
+			public void write(String str, int off, int len) throws IOException {
+				RotatingReportWriter.this.write(str, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				flushIfDue();
+			}
+
+			@Override
+			public void close() throws IOException {
+				RotatingReportWriter.this.close();
+			}
+		};
+	}
+
+	/**
+	 * Write all text collected, wait for the background thread to finish the last
+	 * segment and the index, and stop it.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed_) {
+			return;
+		}
+		if (buffer_.length() > 0) {
+			handOver();
+		}
+		closed_ = true;
+		enqueue(END);
+		try {
+			compressor_.join();
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing the report");
+		}
+		if (failure_ != null) {
+			throw failure_;
+		}
+	}
+
+	/**
+	 * Fail when #receiver was closed, or the background thread failed.
+	 */
+	private void ensureOpen() throws IOException {
+		if (closed_) {
+			throw new IOException("Report closed");
+		}
+		if (failure_ != null) {
+			throw failure_;
+		}
+	}
+
+	/**
+	 * Hand #buffer_ over to the background thread as one chunk, and empty it.
+	 */
+	private void handOver() throws IOException {
+		Chunk chunk = new Chunk(buffer_.toString().getBytes(StandardCharsets.UTF_8), bufferMillis_,
+				lastWriteMillis_);
+		buffer_.setLength(0);
+		enqueue(chunk);
+	}
+
+	/**
+	 * Put #chunk on #queue_, waiting while it is full.
+	 */
+	private void enqueue(Chunk chunk) throws IOException {
+		try {
+			queue_.put(chunk);
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing the report");
+		}
+	}
+
+	/**
+	 * The background thread: compress chunks into segments until END, finishing
+	 * the segment being written once it is #maxSegmentMillis_ old.
+	 */
+	private void compress() {
+		try {
+			while (true) {
+				Chunk chunk;
+				if (segment_ == null) {
+					chunk = queue_.take();
+				} else {
+					long due = segmentFrom_ + maxSegmentMillis_ - System.currentTimeMillis();
+					chunk = queue_.poll(Math.max(due, 0), TimeUnit.MILLISECONDS);
+					if (chunk == null) {
+						closeSegment();
+						continue;
+					}
+				}
+				if (chunk == END) {
+					break;
+				}
+				if (failure_ != null) {
+					continue;
+				}
+				if ((segment_ != null) && ((segmentBytes_ >= maxSegmentBytes_)
+						|| (chunk.fromMillis_ - segmentFrom_ >= maxSegmentMillis_))) {
+					closeSegment();
+				}
+				if (segment_ == null) {
+					openSegment(chunk.fromMillis_);
+				}
+				segment_.write(chunk.bytes_);
+				segment_.flush();
+				segmentBytes_ += chunk.bytes_.length;
+				segmentTo_ = Math.max(segmentTo_, chunk.toMillis_);
+			}
+			if (segment_ != null) {
+				closeSegment();
+			}
+		} catch (IOException exc) {
+			failure_ = exc;
+		} catch (InterruptedException exc) {
+			failure_ = new InterruptedIOException("Report compression interrupted");
+		}
+	}
+
+	/**
+	 * Answer the file of the segment numbered #number.
+	 */
+	private File segmentFile(int number) {
+		return new File(directory_, String.format("%s.%06d.gz", baseName_, number));
+	}
+
+	/**
+	 * Start the segment numbered #segmentNumber_, whose first text was written
+	 * at #millis. Flushing it ends the compressed block, so that what was
+	 * written can be read back before the segment is finished.
+	 */
+	private void openSegment(long millis) throws IOException {
+		segment_ = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(segmentFile(segmentNumber_))),
+				8192, true);
+		segmentBytes_ = 0;
+		segmentFrom_ = millis;
+		segmentTo_ = millis;
+	}
+
+	/**
+	 * Finish the current segment, drop the oldest ones beyond #maxSegments_ and
+	 * rewrite the index.
+	 */
+	private void closeSegment() throws IOException {
+		segment_.close();
+		segment_ = null;
+		segments_.add(new Segment(segmentNumber_, segmentFile(segmentNumber_), segmentOffset_, segmentBytes_,
+				segmentFrom_, segmentTo_));
+		segmentNumber_++;
+		segmentOffset_ += segmentBytes_;
+		while ((maxSegments_ > 0) && (segments_.size() > maxSegments_)) {
+			Files.deleteIfExists(segments_.remove(0).file_.toPath());
+		}
+		writeIndex();
+	}
+
+	/**
+	 * Replace the index by one listing #segments_.
+	 */
+	private void writeIndex() throws IOException {
+		File index = indexFile(directory_, baseName_), temporary = new File(directory_, baseName_ + ".index.tmp");
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(temporary), StandardCharsets.UTF_8)) {
+			for (Segment each : segments_) {
+				out.write(each.number_ + "\t" + each.file_.getName() + "\t" + each.offset_ + "\t" + each.bytes_ + "\t"
+						+ each.fromMillis_ + "\t" + each.toMillis_ + "\n");
+			}
+		}
+		Files.move(temporary.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Answer the index file of the report #baseName in #directory.
+	 */
+	private static File indexFile(File directory, String baseName) {
+		return new File(directory, baseName + ".index");
+	}
+
+	/**
+	 * Answer the segments listed in the index of the report #baseName in
+	 * #directory, oldest first. The segment still being written is not listed.
+	 */
+	public static List<Segment> segments(File directory, String baseName) throws IOException {
+		List<Segment> result = new ArrayList<>();
+		for (String line : Files.readAllLines(indexFile(directory, baseName).toPath(), StandardCharsets.UTF_8)) {
+			String[] fields = line.split("\t");
+			result.add(new Segment(Integer.parseInt(fields[0]), new File(directory, fields[1]),
+					Long.parseLong(fields[2]), Long.parseLong(fields[3]), Long.parseLong(fields[4]),
+					Long.parseLong(fields[5])));
+		}
+		return result;
+	}
+
+	/**
+	 * Answer the finished segments of the report #baseName in #directory holding
+	 * text written between #fromMillis and #toMillis, oldest first.
+	 */
+	public static List<Segment> segmentsBetween(File directory, String baseName, long fromMillis, long toMillis)
+			throws IOException {
+		List<Segment> result = new ArrayList<>();
+		for (Segment each : segments(directory, baseName)) {
+			if ((each.toMillis_ >= fromMillis) && (each.fromMillis_ <= toMillis)) {
+				result.add(each);
+			}
+		}
+		return result;
+	}
+}
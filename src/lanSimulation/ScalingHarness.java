@@ -0,0 +1,465 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A <em>ScalingHarness</em> runs the public operations of <em>Network</em> on
+ * rings of 10, 100, ... nodes (see Network#RingExample), measuring for each the
+ * wall time, the bytes allocated and the peak heap. It fits the growth of time
+ * and allocation as a power of the ring size, and compares the exponents and
+ * the bytes allocated and peak heap per node at the largest ring with a
+ * baseline file. Wall times differ from machine to machine, so only their
+ * growth is compared.
+ * <p>
+ * Like "expectedOutput.txt" for the regression tests, the baseline does not
+ * exist on a first run: the harness then records it, and from then on reports
+ * every operation whose complexity or allocation regressed past it. Assertions
+ * check the consistency of the whole network on every request, so #run
+ * refuses to measure with assertions enabled (-ea). Rings of 10^7 nodes need
+ * about 6 GB of heap (-Xmx6g).
+ * </p>
+ */
+public class ScalingHarness {
+	/**
+	 * Sizes from this one up are used to fit the growth; smaller rings are
+	 * dominated by fixed costs.
+	 */
+	public static final int FIT_FROM = 1000;
+	/**
+	 * How much larger than the baseline a fitted exponent may be.
+	 */
+	public static final double EXPONENT_TOLERANCE = 0.3;
+	/**
+	 * How many times the baseline per node allocation or peak heap may be.
+	 */
+	public static final double ALLOCATION_TOLERANCE = 1.5;
+	/**
+	 * How many bytes the peak heap may be off by. Heap pools count in regions,
+	 * which are up to 32 MB with G1, rather than in bytes.
+	 */
+	public static final long PEAK_HEAP_SLACK = 32L * 1024 * 1024;
+
+	private static final String DOCUMENT = "!PS Hello World in postscript.author:Scaling.title:Harness.";
+
+	/**
+	 * A public operation on a ring of #size nodes.
+	 */
+	public interface Operation {
+		void run(Network network, int size);
+	}
+
+	/**
+	 * The measurements of one operation on rings of increasing size.
+	 */
+	public static class Series {
+		/**
+		 * Holds the name of the operation measured.
+		 */
+		public final String operation_;
+		/**
+		 * Holds the ring sizes measured, in increasing order.
+		 */
+		public final List<Integer> sizes_ = new ArrayList<>();
+		/**
+		 * Holds the fastest wall time of the operation on each ring size.
+		 */
+		public final List<Long> nanos_ = new ArrayList<>();
+		/**
+		 * Holds the bytes one run of the operation allocated on each ring size.
+		 */
+		public final List<Long> allocatedBytes_ = new ArrayList<>();
+		/**
+		 * Holds how far one run of the operation raised the heap above what was in
+		 * use before it, on each ring size.
+		 */
+		public final List<Long> peakHeapBytes_ = new ArrayList<>();
+
+		public Series(String operation) {
+			operation_ = operation;
+		}
+
+		/**
+		 * Answer the fitted exponent of the wall time.
+		 */
+		public double timeExponent() {
+			return exponent(sizes_, nanos_);
+		}
+
+		/**
+		 * Answer the fitted exponent of the allocated bytes.
+		 */
+		public double allocationExponent() {
+			return exponent(sizes_, allocatedBytes_);
+		}
+
+		/**
+		 * Answer the size of the largest ring.
+		 */
+		public int largestSize() {
+			return sizes_.get(sizes_.size() - 1);
+		}
+
+		/**
+		 * Answer the wall time per node on the largest ring.
+		 */
+		public double nanosPerNode() {
+			return (double) nanos_.get(nanos_.size() - 1) / largestSize();
+		}
+
+		/**
+		 * Answer the bytes allocated per node on the largest ring.
+		 */
+		public double bytesPerNode() {
+			return (double) allocatedBytes_.get(allocatedBytes_.size() - 1) / largestSize();
+		}
+
+		/**
+		 * Answer the peak heap per node on the largest ring.
+		 */
+		public double peakHeapPerNode() {
+			return (double) peakHeapBytes_.get(peakHeapBytes_.size() - 1) / largestSize();
+		}
+	}
+
+	private final Map<String, Operation> operations_ = new LinkedHashMap<>();
+	private final List<Series> results_ = new ArrayList<>();
+
+	/**
+	 * Construct a <em>ScalingHarness</em> for the public operations of
+	 * <em>Network</em>.
+	 */
+	public ScalingHarness() {
+		operations_.put("consistentNetwork", (network, size) -> network.consistentNetwork());
+		operations_.put("topologyChanged", (network, size) -> {
+			network.topologyChanged();
+			network.ringIndex();
+		});
+		operations_.put("printOn", (network, size) -> network.printOn(new StringBuffer()));
+		operations_.put("printHTMLOn", (network, size) -> network.printHTMLOn(new StringBuffer()));
+		operations_.put("printXMLOn", (network, size) -> network.printXMLOn(new StringBuffer()));
+		operations_.put("requestBroadcast", (network, size) -> network.requestBroadcast(Writer.nullWriter()));
+		operations_.put("requestWorkstationPrintsDocument", (network, size) -> network
+				.requestWorkstationPrintsDocument("w0", DOCUMENT, lastPrinter(size), Writer.nullWriter()));
+		operations_.put("hopDistance", (network, size) -> network.hopDistance("w0", lastPrinter(size)));
+		operations_.put("nearestPrinters", (network, size) -> network.nearestPrinters("w0", 3));
+		operations_.put("stream", (network, size) -> network.stream().mapToLong(node -> node.address_).sum());
+	}
+
+	/**
+	 * Answer the name of the printer furthest from "w0" in Network#RingExample(#size).
+	 */
+	private static String lastPrinter(int size) {
+		return "p" + ((size - 6) / 100 * 100 + 5);
+	}
+
+	/**
+	 * Answer the operations measured, by name.
+	 */
+	public Map<String, Operation> operations() {
+		return operations_;
+	}
+
+	/**
+	 * Measure every operation on rings of 10, 100, ... up to #maxSize nodes.
+	 * <p>
+	 * <strong>Precondition:</strong> maxSize >= 10;
+	 * </p>
+	 */
+	public List<Series> measure(int maxSize) {
+		assert maxSize >= 10;
+		results_.clear();
+		for (String operation : operations_.keySet()) {
+			results_.add(new Series(operation));
+		}
+		for (int size = 10; size <= maxSize; size *= 10) {
+			Network network = Network.RingExample(size);
+			for (Series series : results_) {
+				measure(series, operations_.get(series.operation_), network, size);
+			}
+			network = null;
+			System.gc();
+			if (size > Integer.MAX_VALUE / 10) {
+				break;
+			}
+		}
+		return results_;
+	}
+
+	/**
+	 * Run #operation on #network a few times and add the fastest time, and the
+	 * bytes allocated and the peak heap of one run, to #series.
+	 */
+	private void measure(Series series, Operation operation, Network network, int size) {
+		int repetitions = Math.max(3, Math.min(100, 100000 / size));
+		long best = Long.MAX_VALUE;
+
+		operation.run(network, size);
+		for (int i = 0; i < repetitions; i++) {
+			long start = System.nanoTime();
+			operation.run(network, size);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		long heapBefore = resetPeakHeap();
+		long allocatedBefore = allocatedBytes();
+		operation.run(network, size);
+		long allocated = allocatedBytes() - allocatedBefore;
+		long peakHeap = Math.max(peakHeap() - heapBefore, 0);
+
+		series.sizes_.add(size);
+		series.nanos_.add(best);
+		series.allocatedBytes_.add(allocated);
+		series.peakHeapBytes_.add(peakHeap);
+	}
+
+	/**
+	 * Answer the bytes allocated per hop by a broadcast and a print request on
+	 * Network#RingExample(#size), after a few requests to warm up. Requests reuse
+	 * their packets, so this stays close to 0; only meaningful with assertions
+	 * disabled, as they check the whole network on every request.
+	 * <p>
+	 * <strong>Precondition:</strong> size >= 10;
+	 * </p>
+	 */
+	public static double allocatedBytesPerHop(int size) {
+		Network network = Network.RingExample(size);
+		String printer = lastPrinter(size);
+		long allocated = 0;
+
+		for (int i = 0; i < 20; i++) {
+			long before = allocatedBytes();
+			network.requestBroadcast(Writer.nullWriter());
+			network.requestWorkstationPrintsDocument("w0", DOCUMENT, printer, Writer.nullWriter());
+			allocated = allocatedBytes() - before;
+		}
+		return (double) allocated / (size + network.hopDistance("w0", printer));
+	}
+
+	/**
+	 * Answer the bytes allocated so far by the current thread, or 0 when the
+	 * virtual machine does not tell.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+		}
+		return 0;
+	}
+
+	/**
+	 * Reset the peak usage of every heap memory pool, and answer the heap in use.
+	 */
+	private static long resetPeakHeap() {
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				used += pool.getUsage().getUsed();
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * Answer the sum of the peak usage of every heap memory pool since the last
+	 * #resetPeakHeap.
+	 */
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * Answer the exponent k of the least squares fit of #values = c * #sizes^k
+	 * on a log-log scale, over the sizes from FIT_FROM up (or the two largest
+	 * when there are fewer).
+	 */
+	public static double exponent(List<Integer> sizes, List<Long> values) {
+		int from = 0;
+		while ((from < sizes.size() - 2) && (sizes.get(from) < FIT_FROM)) {
+			from++;
+		}
+		int n = sizes.size() - from;
+		if (n < 2) {
+			return 0.0;
+		}
+		double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+		for (int i = from; i < sizes.size(); i++) {
+			double x = Math.log(sizes.get(i)), y = Math.log(values.get(i) + 1);
+			sumX += x;
+			sumY += y;
+			sumXX += x * x;
+			sumXY += x * y;
+		}
+		return (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+	}
+
+	/**
+	 * Write a table of all measurements, followed by the fitted growth of every
+	 * operation, on #buf.
+	 */
+	public void printOn(StringBuffer buf) {
+		buf.append("operation\tnodes\tus\tallocated bytes\tpeak heap bytes\n");
+		for (Series series : results_) {
+			for (int i = 0; i < series.sizes_.size(); i++) {
+				buf.append(series.operation_).append('\t').append(series.sizes_.get(i)).append('\t')
+						.append(series.nanos_.get(i) / 1000).append('\t').append(series.allocatedBytes_.get(i))
+						.append('\t').append(series.peakHeapBytes_.get(i)).append('\n');
+			}
+		}
+		buf.append("\noperation\ttime ~ n^k\tallocation ~ n^k\tns per node\tbytes per node\tpeak heap per node\n");
+		for (Series series : results_) {
+			buf.append(series.operation_).append('\t').append(format("%.2f", series.timeExponent()))
+					.append('\t').append(format("%.2f", series.allocationExponent())).append('\t')
+					.append(format("%.3f", series.nanosPerNode())).append('\t')
+					.append(format("%.3f", series.bytesPerNode())).append('\t')
+					.append(format("%.3f", series.peakHeapPerNode())).append('\n');
+		}
+	}
+
+	/**
+	 * Answer #value formatted after #format, independent of the default locale,
+	 * so that baselines read back everywhere.
+	 */
+	private static String format(String format, double value) {
+		return String.format(Locale.ROOT, format, value);
+	}
+
+	/**
+	 * Write the fitted growth and the per node allocation and peak heap of every
+	 * operation as a baseline on #out.
+	 */
+	public void storeBaseline(OutputStream out) throws IOException {
+		Properties baseline = new Properties();
+		for (Series series : results_) {
+			baseline.setProperty(series.operation_ + ".timeExponent", format("%.3f", series.timeExponent()));
+			baseline.setProperty(series.operation_ + ".allocationExponent",
+					format("%.3f", series.allocationExponent()));
+			baseline.setProperty(series.operation_ + ".bytesPerNode", format("%.3f", series.bytesPerNode()));
+			baseline.setProperty(series.operation_ + ".peakHeapPerNode", format("%.3f", series.peakHeapPerNode()));
+		}
+		baseline.store(out, "ScalingHarness baseline");
+	}
+
+	/**
+	 * Compare the fitted growth and the per node allocation and peak heap of
+	 * every operation with #baseline, and write every regression on #buf.
+	 * 
+	 * @return Answer #true when no operation regressed and #false otherwise
+	 */
+	public boolean compareWith(Properties baseline, StringBuffer buf) {
+		boolean result = true;
+		for (Series series : results_) {
+			result &= within(series.operation_, "timeExponent", series.timeExponent(), baseline, 1.0,
+					EXPONENT_TOLERANCE, buf);
+			result &= within(series.operation_, "allocationExponent", series.allocationExponent(), baseline, 1.0,
+					EXPONENT_TOLERANCE, buf);
+			result &= within(series.operation_, "bytesPerNode", series.bytesPerNode(), baseline,
+					ALLOCATION_TOLERANCE, 1.0, buf);
+			result &= within(series.operation_, "peakHeapPerNode", series.peakHeapPerNode(), baseline,
+					ALLOCATION_TOLERANCE, Math.max(1.0, (double) PEAK_HEAP_SLACK / series.largestSize()), buf);
+		}
+		return result;
+	}
+
+	/**
+	 * Answer whether #observed is at most #factor times plus #slack above the
+	 * baseline value of #operation.#measure (taken as 0 when negative, as fitted
+	 * exponents of constant time operations may be), reporting on #buf when it is
+	 * not.
+	 * Measures missing from #baseline always pass.
+	 */
+	private static boolean within(String operation, String measure, double observed, Properties baseline,
+			double factor, double slack, StringBuffer buf) {
+		String expected = baseline.getProperty(operation + "." + measure);
+		if (expected == null) {
+			return true;
+		}
+		double limit = Math.max(Double.parseDouble(expected), 0.0) * factor + slack;
+		if (observed <= limit) {
+			return true;
+		}
+		buf.append("REGRESSION ").append(operation).append(": ").append(measure).append(" = ")
+				.append(format("%.3f", observed)).append(", baseline ").append(expected).append('\n');
+		return false;
+	}
+
+	/**
+	 * Measure rings of up to #maxSize nodes and compare with the baseline in file
+	 * #baselineFName, recording the baseline when the file does not exist yet.
+	 * Refuses to measure when assertions are enabled.
+	 * 
+	 * @return Answer #true when no operation regressed and #false otherwise
+	 */
+	public static boolean run(int maxSize, String baselineFName) {
+		ScalingHarness harness = new ScalingHarness();
+		StringBuffer buf = new StringBuffer();
+		boolean result = true, assertions = false;
+
+		assert assertions = true;
+		if (assertions) {
+			System.out.println("Assertions are enabled; run the scaling harness without -ea.");
+			return false;
+		}
+
+		harness.measure(maxSize);
+		harness.printOn(buf);
+		File baselineFile = new File(baselineFName);
+		try {
+			if (baselineFile.exists()) {
+				Properties baseline = new Properties();
+				try (InputStream in = new FileInputStream(baselineFile)) {
+					baseline.load(in);
+				}
+				buf.append('\n');
+				result = harness.compareWith(baseline, buf);
+				buf.append(result ? "No scaling regressions.\n" : "Scaling regressions found.\n");
+			} else {
+				try (OutputStream out = new FileOutputStream(baselineFile)) {
+					harness.storeBaseline(out);
+				}
+				buf.append("\nRecorded baseline '").append(baselineFName).append("'.\n");
+			}
+		} catch (IOException exc) {
+			buf.append("Could not access baseline '").append(baselineFName).append("': ").append(exc.getMessage())
+					.append('\n');
+			result = false;
+		}
+		System.out.print(buf);
+		return result;
+	}
+}
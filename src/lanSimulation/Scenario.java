@@ -0,0 +1,75 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+
+/**
+ * A <em>Scenario</em> is a single request against a fresh <em>Network</em>,
+ * together with the result it is expected to produce. Scenarios are run by a
+ * <em>ScenarioRunner</em>.
+ */
+public class Scenario {
+	/**
+	 * The request performed by a scenario.
+	 */
+	public interface Action {
+		boolean run(Network network, Writer report);
+	}
+
+	/**
+	 * Holds a short description of the scenario, used in summaries.
+	 */
+	public final String name_;
+	/**
+	 * Holds the request performed by the scenario.
+	 */
+	public final Action action_;
+	/**
+	 * Holds the result the request is expected to produce.
+	 */
+	public final boolean expected_;
+
+	/**
+	 * Construct a <em>Scenario</em> named #name, which performs #action and
+	 * expects #expected as its result.
+	 */
+	public Scenario(String name, Action action, boolean expected) {
+		name_ = name;
+		action_ = action;
+		expected_ = expected;
+	}
+
+	/**
+	 * Answer a scenario in which #workstation prints #document on #printer.
+	 */
+	public static Scenario print(String workstation, String document, String printer, boolean expected) {
+		return new Scenario("'" + workstation + "' prints '" + document + "' on '" + printer + "'",
+				(network, report) -> network.requestWorkstationPrintsDocument(workstation, document, printer, report),
+				expected);
+	}
+
+	/**
+	 * Answer a scenario in which a broadcast is requested.
+	 */
+	public static Scenario broadcast() {
+		return new Scenario("BROADCAST REQUEST", (network, report) -> network.requestBroadcast(report), true);
+	}
+}
@@ -0,0 +1,172 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * A <em>ScenarioRunner</em> runs many independent scenarios in parallel. Every
+ * scenario runs on its own <em>Network</em> and writes its own report, so
+ * scenarios never share state. Outcomes are answered in the order in which
+ * the scenarios were added, regardless of the order in which they finished.
+ */
+public class ScenarioRunner {
+	/**
+	 * The result of running a single scenario.
+	 */
+	public static class Outcome {
+		/**
+		 * Holds the scenario that was run.
+		 */
+		public final Scenario scenario_;
+		/**
+		 * Holds the result answered by the request.
+		 */
+		public final boolean result_;
+		/**
+		 * Holds the report written while running the scenario.
+		 */
+		public final String report_;
+		/**
+		 * Holds the time spent running the scenario, in nanoseconds.
+		 */
+		public final long nanos_;
+
+		Outcome(Scenario scenario, boolean result, String report, long nanos) {
+			scenario_ = scenario;
+			result_ = result;
+			report_ = report;
+			nanos_ = nanos;
+		}
+
+		/**
+		 * Answer whether the scenario produced its expected result.
+		 */
+		public boolean asExpected() {
+			return result_ == scenario_.expected_;
+		}
+	}
+
+	/**
+	 * Holds the factory for the network each scenario runs on.
+	 */
+	private final Supplier<Network> networks_;
+	/**
+	 * Holds the scenarios to run, in order.
+	 */
+	private final List<Scenario> scenarios_;
+
+	/**
+	 * Construct a <em>ScenarioRunner</em> which runs every scenario on a fresh
+	 * network obtained from #networks.
+	 */
+	public ScenarioRunner(Supplier<Network> networks) {
+		networks_ = networks;
+		scenarios_ = new ArrayList<>();
+	}
+
+	/**
+	 * Add #scenario to the scenarios to run.
+	 */
+	public void add(Scenario scenario) {
+		scenarios_.add(scenario);
+	}
+
+	/**
+	 * Add all #scenarios to the scenarios to run.
+	 */
+	public void addAll(List<Scenario> scenarios) {
+		scenarios_.addAll(scenarios);
+	}
+
+	/**
+	 * Run all scenarios on a fork-join pool of #parallelism threads.
+	 * <p>
+	 * <strong>Precondition:</strong> parallelism > 0;
+	 * </p>
+	 *
+	 * @return the outcomes, in the order in which the scenarios were added.
+	 */
+	public List<Outcome> run(int parallelism) throws InterruptedException {
+		assert parallelism > 0;
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.submit(() -> scenarios_.parallelStream().map(this::runScenario).collect(Collectors.toList()))
+					.get();
+		} catch (ExecutionException exc) {
+			throw new IllegalStateException("Scenario failed", exc.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private Outcome runScenario(Scenario scenario) {
+		Network network = networks_.get();
+		StringWriter report = new StringWriter(100);
+		long start = System.nanoTime();
+		boolean result = scenario.action_.run(network, report);
+		return new Outcome(scenario, result, report.toString(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Write a summary of #outcomes on the given #buf: one line per scenario,
+	 * followed by the totals.
+	 */
+	public static void printSummaryOn(List<Outcome> outcomes, StringBuffer buf) {
+		int asExpected = 0;
+		long nanos = 0;
+
+		for (Outcome outcome : outcomes) {
+			buf.append(outcome.scenario_.name_);
+			buf.append(": ");
+			buf.append(outcome.result_);
+			buf.append(" (expects ");
+			buf.append(outcome.scenario_.expected_);
+			buf.append(");\n");
+			if (outcome.asExpected()) {
+				asExpected++;
+			}
+			nanos += outcome.nanos_;
+		}
+		buf.append(outcomes.size());
+		buf.append(" scenarios, ");
+		buf.append(asExpected);
+		buf.append(" as expected, ");
+		buf.append(nanos / 1000);
+		buf.append(" microseconds in total.\n");
+	}
+
+	/**
+	 * Write the reports of all #outcomes on #report, in the order of #outcomes.
+	 */
+	public static void printReportsOn(List<Outcome> outcomes, Writer report) throws IOException {
+		for (Outcome outcome : outcomes) {
+			report.write(outcome.report_);
+		}
+		report.flush();
+	}
+}
@@ -0,0 +1,297 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import lanSimulation.internals.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * A <em>TokenRing</em> simulates the medium access of an 802.5 style token ring
+ * on the nodes of a <em>Network</em>. A free token travels from node to node; a
+ * node holding frames of at least the token priority seizes it and transmits
+ * for at most the token holding time. With early token release the sender
+ * issues a new token as soon as it stops transmitting, otherwise it waits
+ * until the header of its last frame has come back around the ring.
+ * <p>
+ * Frames passing by other nodes collect their reservations; the new token is
+ * issued at the reserved priority. A token that makes a full rotation without
+ * being seized drops to the highest priority reserved during that rotation.
+ * </p>
+ * <p>
+ * Time is expressed in ticks. The run measures ring utilisation, token
+ * rotation time and per-priority latency in a <em>TokenRingStatistics</em>.
+ * </p>
+ */
+public class TokenRing {
+	/**
+	 * The highest access priority of a frame.
+	 */
+	public static final int MAX_PRIORITY = 7;
+
+	/**
+	 * A frame waiting to be transmitted.
+	 */
+	private static class Frame {
+		/**
+		 * Holds the packet transmitted, carrying the priority of the frame.
+		 */
+		final Packet packet_;
+		/**
+		 * Holds the position in #ring_ of the sending node.
+		 */
+		final int origin_;
+		/**
+		 * Holds the position in #ring_ of the receiving node.
+		 */
+		final int destination_;
+		/**
+		 * Holds the time the frame becomes ready for transmission.
+		 */
+		final long arrival_;
+
+		Frame(Packet packet, int origin, int destination, long arrival) {
+			packet_ = packet;
+			origin_ = origin;
+			destination_ = destination;
+			arrival_ = arrival;
+		}
+	}
+
+	/**
+	 * Orders waiting frames by decreasing priority, then by arrival.
+	 */
+	private static final Comparator<Frame> BY_PRIORITY = Comparator
+			.comparingInt((Frame frame) -> -frame.packet_.priority_).thenComparingLong(frame -> frame.arrival_);
+
+	/**
+	 * Holds the nodes of the ring, in ring order.
+	 */
+	private final Node[] ring_;
+	/**
+	 * Maps the names of the nodes on their position in #ring_.
+	 */
+	private final HashMap<String, Integer> positions_;
+	/**
+	 * Holds, per node, the frames that have arrived and wait for the token.
+	 */
+	private final ArrayList<PriorityQueue<Frame>> queues_;
+	/**
+	 * Holds the frames that have not arrived yet, by arrival.
+	 */
+	private final PriorityQueue<Frame> future_;
+	/**
+	 * Holds the time needed to pass a bit from one node to the next.
+	 */
+	private final long hopTicks_;
+	/**
+	 * Holds the time needed to transmit one frame.
+	 */
+	private final long frameTicks_;
+	/**
+	 * Holds the time a node may keep the token.
+	 */
+	private final long holdingTicks_;
+	/**
+	 * Holds whether the sender releases the token as soon as it stops
+	 * transmitting, rather than once its frame came back.
+	 */
+	private final boolean earlyRelease_;
+	/**
+	 * Holds the number of frames waiting in #queues_.
+	 */
+	private int queued_;
+
+	/**
+	 * Construct a <em>TokenRing</em> over the nodes of #network.
+	 * <p>
+	 * <strong>Precondition:</strong> network.consistentNetwork() & (hopTicks > 0)
+	 * & (frameTicks > 0) & (holdingTicks >= frameTicks);
+	 * </p>
+	 *
+	 * @param hopTicks     time needed to pass a bit from one node to the next.
+	 * @param frameTicks   time needed to transmit one frame.
+	 * @param holdingTicks time a node may keep the token.
+	 * @param earlyRelease whether the sender releases the token as soon as it
+	 *                     stops transmitting.
+	 */
+	public TokenRing(Network network, long hopTicks, long frameTicks, long holdingTicks, boolean earlyRelease) {
+		assert network.consistentNetwork();
+		assert (hopTicks > 0) & (frameTicks > 0) & (holdingTicks >= frameTicks);
+
+		ArrayList<Node> nodes = new ArrayList<>();
+		Node currentNode = network.firstNode();
+		do {
+			nodes.add(currentNode);
+			currentNode = currentNode.nextNode_;
+		} while (currentNode != network.firstNode());
+
+		ring_ = nodes.toArray(new Node[0]);
+		positions_ = new HashMap<>(ring_.length * 2);
+		queues_ = new ArrayList<>(ring_.length);
+		for (int i = 0; i < ring_.length; i++) {
+			positions_.put(ring_[i].name_, i);
+			queues_.add(new PriorityQueue<>(BY_PRIORITY));
+		}
+		future_ = new PriorityQueue<>(Comparator.comparingLong((Frame frame) -> frame.arrival_));
+		hopTicks_ = hopTicks;
+		frameTicks_ = frameTicks;
+		holdingTicks_ = holdingTicks;
+		earlyRelease_ = earlyRelease;
+		queued_ = 0;
+	}
+
+	/**
+	 * Submit a frame from #workstation to #printer with the given #priority,
+	 * which becomes ready for transmission at time #arrival.
+	 * <p>
+	 * <strong>Precondition:</strong> both nodes are on the ring &
+	 * (priority >= 0) & (priority <= MAX_PRIORITY) & (arrival >= 0);
+	 * </p>
+	 */
+	public void submit(String workstation, String printer, int priority, long arrival) {
+		assert positions_.containsKey(workstation) & positions_.containsKey(printer);
+		assert (priority >= 0) & (priority <= MAX_PRIORITY) & (arrival >= 0);
+
+		Packet packet = new Packet("FRAME", workstation, printer);
+		packet.priority_ = priority;
+		future_.add(new Frame(packet, positions_.get(workstation), positions_.get(printer), arrival));
+	}
+
+	/**
+	 * Run the ring until every submitted frame has been delivered.
+	 */
+	public TokenRingStatistics run() {
+		TokenRingStatistics statistics = new TokenRingStatistics();
+		Packet token = new Packet("TOKEN", "", "");
+		long now = 0, lastRotation = -1;
+		int position = 0, idleHops = 0;
+
+		while (true) {
+			admit(now);
+			if (queued_ == 0) {
+				if (future_.isEmpty()) {
+					break;
+				}
+				// nothing to send: skip ahead to the next arrival with an idle token
+				long steps = Math.max(0, (future_.peek().arrival_ - now + hopTicks_ - 1) / hopTicks_);
+				now += steps * hopTicks_;
+				position = (int) ((position + steps) % ring_.length);
+				token.priority_ = 0;
+				token.reservation_ = 0;
+				lastRotation = -1;
+				idleHops = 0;
+				admit(now);
+			}
+
+			if (position == 0) {
+				if (lastRotation >= 0) {
+					statistics.rotations_++;
+					statistics.rotationTicks_ += now - lastRotation;
+				}
+				lastRotation = now;
+			}
+
+			PriorityQueue<Frame> queue = queues_.get(position);
+			Frame head = queue.peek();
+			if ((head != null) && (head.packet_.priority_ >= token.priority_)) {
+				now = transmit(position, now, token, statistics);
+				idleHops = 0;
+			} else {
+				if ((head != null) && (head.packet_.priority_ > token.reservation_)) {
+					token.reservation_ = head.packet_.priority_;
+				}
+				if (++idleHops >= ring_.length) {
+					token.priority_ = token.reservation_;
+					token.reservation_ = 0;
+					idleHops = 0;
+				}
+			}
+
+			now += hopTicks_;
+			position = (position + 1) % ring_.length;
+		}
+
+		statistics.elapsed_ = now;
+		return statistics;
+	}
+
+	/**
+	 * Let the node at #position seize the token at time #now and transmit for at
+	 * most the token holding time.
+	 *
+	 * @return the time at which the node issues the new token.
+	 */
+	private long transmit(int position, long now, Packet token, TokenRingStatistics statistics) {
+		PriorityQueue<Frame> queue = queues_.get(position);
+		long start = now, lastStart = now;
+		Frame frame;
+
+		do {
+			frame = queue.poll();
+			queued_--;
+			lastStart = now;
+			now += frameTicks_;
+			statistics.busy_ += frameTicks_;
+			statistics.recordDelivery(frame.packet_.priority_, now + hops(position, frame.destination_) * hopTicks_
+					- frame.arrival_);
+			admit(now);
+			frame = queue.peek();
+		} while ((frame != null) && (frame.packet_.priority_ >= token.priority_)
+				&& (now - start + frameTicks_ <= holdingTicks_));
+
+		if (!earlyRelease_) {
+			now = Math.max(now, lastStart + ring_.length * hopTicks_);
+			admit(now);
+		}
+
+		// the frames passed every other node, which reserved their highest waiting priority
+		int reservation = token.reservation_;
+		for (int i = 0; i < queues_.size(); i++) {
+			Frame waiting = queues_.get(i).peek();
+			if ((i != position) && (waiting != null)) {
+				reservation = Math.max(reservation, waiting.packet_.priority_);
+			}
+		}
+		token.priority_ = Math.max(token.priority_, reservation);
+		token.reservation_ = 0;
+		return now;
+	}
+
+	/**
+	 * Move the frames which have arrived by #now to the queues of their nodes.
+	 */
+	private void admit(long now) {
+		while (!future_.isEmpty() && (future_.peek().arrival_ <= now)) {
+			Frame frame = future_.poll();
+			queues_.get(frame.origin_).add(frame);
+			queued_++;
+		}
+	}
+
+	/**
+	 * Answer the number of hops from position #from to position #to.
+	 */
+	private int hops(int from, int to) {
+		return Math.floorMod(to - from, ring_.length);
+	}
+}
@@ -0,0 +1,145 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.util.Locale;
+
+/**
+ * A <em>TokenRingStatistics</em> holds the measurements of a run of a
+ * <em>TokenRing</em>. All times are expressed in ticks.
+ */
+public class TokenRingStatistics {
+	/**
+	 * Holds the time at which the run ended.
+	 */
+	long elapsed_;
+	/**
+	 * Holds the time the ring spent transmitting frames.
+	 */
+	long busy_;
+	/**
+	 * Holds the number of complete token rotations measured.
+	 */
+	long rotations_;
+	/**
+	 * Holds the total time of the measured token rotations.
+	 */
+	long rotationTicks_;
+	/**
+	 * Holds, per priority, the number of frames delivered.
+	 */
+	final long[] delivered_;
+	/**
+	 * Holds, per priority, the sum of the latencies of the delivered frames.
+	 */
+	final long[] latencySum_;
+	/**
+	 * Holds, per priority, the highest latency of the delivered frames.
+	 */
+	final long[] maxLatency_;
+
+	/**
+	 * Construct a <em>TokenRingStatistics</em> of a run that did not start yet.
+	 */
+	TokenRingStatistics() {
+		delivered_ = new long[TokenRing.MAX_PRIORITY + 1];
+		latencySum_ = new long[TokenRing.MAX_PRIORITY + 1];
+		maxLatency_ = new long[TokenRing.MAX_PRIORITY + 1];
+	}
+
+	/**
+	 * Count a frame with #priority delivered #latency ticks after it arrived.
+	 */
+	void recordDelivery(int priority, long latency) {
+		delivered_[priority]++;
+		latencySum_[priority] += latency;
+		maxLatency_[priority] = Math.max(maxLatency_[priority], latency);
+	}
+
+	/**
+	 * Answer the fraction of the run during which the ring was transmitting.
+	 */
+	public double utilisation() {
+		return elapsed_ == 0 ? 0.0 : (double) busy_ / elapsed_;
+	}
+
+	/**
+	 * Answer the mean time the token needed to travel once around the ring, or 0
+	 * when no rotation was measured.
+	 */
+	public double meanRotationTime() {
+		return rotations_ == 0 ? 0.0 : (double) rotationTicks_ / rotations_;
+	}
+
+	/**
+	 * Answer the number of frames delivered with the given #priority.
+	 */
+	public long delivered(int priority) {
+		return delivered_[priority];
+	}
+
+	/**
+	 * Answer the mean latency, from submission to delivery, of the frames with
+	 * the given #priority, or 0 when none were delivered.
+	 */
+	public double meanLatency(int priority) {
+		return delivered_[priority] == 0 ? 0.0 : (double) latencySum_[priority] / delivered_[priority];
+	}
+
+	/**
+	 * Answer the highest latency of the frames with the given #priority.
+	 */
+	public long maxLatency(int priority) {
+		return maxLatency_[priority];
+	}
+
+	/**
+	 * Answer the time at which the run ended.
+	 */
+	public long elapsed() {
+		return elapsed_;
+	}
+
+	/**
+	 * Write a printable representation of #receiver on the given #buf.
+	 */
+	public void printOn(StringBuffer buf) {
+		buf.append("utilisation = ");
+		buf.append(String.format(Locale.ROOT, "%.3f", utilisation()));
+		buf.append(" -- mean token rotation = ");
+		buf.append(String.format(Locale.ROOT, "%.1f", meanRotationTime()));
+		buf.append(" -- elapsed = ");
+		buf.append(elapsed_);
+		buf.append('\n');
+		for (int priority = TokenRing.MAX_PRIORITY; priority >= 0; priority--) {
+			if (delivered_[priority] > 0) {
+				buf.append("\tpriority ");
+				buf.append(priority);
+				buf.append(": delivered = ");
+				buf.append(delivered_[priority]);
+				buf.append(" -- mean latency = ");
+				buf.append(String.format(Locale.ROOT, "%.1f", meanLatency(priority)));
+				buf.append(" -- max latency = ");
+				buf.append(maxLatency_[priority]);
+				buf.append('\n');
+			}
+		}
+	}
+}
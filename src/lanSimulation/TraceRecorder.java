@@ -0,0 +1,159 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * A <em>TraceRecorder</em> wraps a <em>Network</em> and records every request
+ * passed through it, together with its arguments and result, in a compact
+ * binary trace. The trace can be fed back with a <em>TraceReplayer</em>.
+ * <p>
+ * A trace starts with #MAGIC and #VERSION, followed by one entry per request.
+ * An entry is a kind byte (#PRINT or #BROADCAST), the length-prefixed UTF-8
+ * arguments of the request, a result byte and the #checksum of the report the
+ * request wrote. The trace ends with #END.
+ * </p>
+ */
+public class TraceRecorder implements Closeable {
+	static final int MAGIC = 0x4C414E54; // "LANT"
+	static final byte VERSION = 2;
+	static final byte END = 0;
+	static final byte PRINT = 1;
+	static final byte BROADCAST = 2;
+
+	/**
+	 * Holds the network receiving the requests.
+	 */
+	private final Network network_;
+	/**
+	 * Holds the stream the trace is written to.
+	 */
+	private final DataOutputStream out_;
+	/**
+	 * Holds the number of requests recorded so far.
+	 */
+	private long recorded_;
+	/**
+	 * Holds the report of the request being recorded, before it is passed on.
+	 */
+	private final StringWriter requestReport_;
+
+	/**
+	 * Construct a <em>TraceRecorder</em> which forwards requests to #network and
+	 * writes the trace on #out.
+	 * <p>
+	 * <strong>Precondition:</strong> network.isInitialized();
+	 * </p>
+	 */
+	public TraceRecorder(Network network, OutputStream out) throws IOException {
+		assert network.isInitialized();
+		network_ = network;
+		out_ = new DataOutputStream(new BufferedOutputStream(out));
+		out_.writeInt(MAGIC);
+		out_.writeByte(VERSION);
+		recorded_ = 0;
+		requestReport_ = new StringWriter(500);
+	}
+
+	/**
+	 * Forward the print request to the network and record it.
+	 *
+	 * @see Network#requestWorkstationPrintsDocument(String, String, String, Writer)
+	 */
+	public boolean requestWorkstationPrintsDocument(String workstation, String document, String printer,
+			Writer report) throws IOException {
+		requestReport_.getBuffer().setLength(0);
+		boolean result = network_.requestWorkstationPrintsDocument(workstation, document, printer, requestReport_);
+
+		out_.writeByte(PRINT);
+		writeString(out_, workstation);
+		writeString(out_, document);
+		writeString(out_, printer);
+		out_.writeBoolean(result);
+		out_.writeInt(checksum(requestReport_));
+		report.append(requestReport_.getBuffer());
+		recorded_++;
+		return result;
+	}
+
+	/**
+	 * Forward the broadcast request to the network and record it.
+	 *
+	 * @see Network#requestBroadcast(Writer)
+	 */
+	public boolean requestBroadcast(Writer report) throws IOException {
+		requestReport_.getBuffer().setLength(0);
+		boolean result = network_.requestBroadcast(requestReport_);
+
+		out_.writeByte(BROADCAST);
+		out_.writeBoolean(result);
+		out_.writeInt(checksum(requestReport_));
+		report.append(requestReport_.getBuffer());
+		recorded_++;
+		return result;
+	}
+
+	/**
+	 * Answer the number of requests recorded so far.
+	 */
+	public long recorded() {
+		return recorded_;
+	}
+
+	/**
+	 * Terminate the trace and close the underlying stream.
+	 */
+	public void close() throws IOException {
+		out_.writeByte(END);
+		out_.close();
+	}
+
+	/**
+	 * Answer the CRC-32 of the UTF-8 encoding of #report, so that a replay can
+	 * verify it writes the same report without storing it.
+	 */
+	static int checksum(StringWriter report) {
+		CRC32 crc = new CRC32();
+		crc.update(report.toString().getBytes(StandardCharsets.UTF_8));
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Write #s as its UTF-8 length followed by its UTF-8 bytes. Unlike
+	 * DataOutput.writeUTF this does not limit documents to 64K.
+	 */
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Read a string written by #writeString.
+	 */
+	static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
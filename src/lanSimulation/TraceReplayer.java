@@ -0,0 +1,199 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * A <em>TraceReplayer</em> feeds a trace written by a <em>TraceRecorder</em>
+ * back into a <em>Network</em> as fast as possible, and verifies that every
+ * request yields the recorded result and writes the recorded report.
+ */
+public class TraceReplayer {
+	/**
+	 * A single recorded request.
+	 */
+	static class Entry {
+		final byte kind_;
+		final String workstation_;
+		final String document_;
+		final String printer_;
+		final boolean result_;
+		final int checksum_;
+
+		Entry(byte kind, String workstation, String document, String printer, boolean result, int checksum) {
+			kind_ = kind;
+			workstation_ = workstation;
+			document_ = document;
+			printer_ = printer;
+			result_ = result;
+			checksum_ = checksum;
+		}
+	}
+
+	/**
+	 * Holds the recorded requests, in recording order.
+	 */
+	private final List<Entry> entries_;
+
+	/**
+	 * Construct a <em>TraceReplayer</em> holding the trace read from #in. The
+	 * whole trace is decoded up front, so that replaying measures the network
+	 * and not the decoding.
+	 */
+	public TraceReplayer(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+
+		if (data.readInt() != TraceRecorder.MAGIC) {
+			throw new IOException("Not a LAN simulation trace");
+		}
+		if (data.readByte() != TraceRecorder.VERSION) {
+			throw new IOException("Unsupported trace version");
+		}
+
+		entries_ = new ArrayList<>();
+		byte kind;
+		while ((kind = data.readByte()) != TraceRecorder.END) {
+			if (kind == TraceRecorder.PRINT) {
+				String workstation = TraceRecorder.readString(data);
+				String document = TraceRecorder.readString(data);
+				String printer = TraceRecorder.readString(data);
+				boolean result = data.readBoolean();
+				entries_.add(new Entry(kind, workstation, document, printer, result, data.readInt()));
+			} else if (kind == TraceRecorder.BROADCAST) {
+				boolean result = data.readBoolean();
+				entries_.add(new Entry(kind, null, null, null, result, data.readInt()));
+			} else {
+				throw new IOException("Corrupt trace: unknown entry kind " + kind);
+			}
+		}
+	}
+
+	/**
+	 * Answer the number of requests in the trace.
+	 */
+	public int size() {
+		return entries_.size();
+	}
+
+	/**
+	 * Replay the whole trace on #network, in recording order, writing the
+	 * report on #report.
+	 * <p>
+	 * <strong>Precondition:</strong> network.consistentNetwork();
+	 * </p>
+	 *
+	 * @return the number of requests whose result or report differs from the
+	 *         recorded one.
+	 */
+	public int replay(Network network, Writer report) {
+		return replay(entries_, network, report);
+	}
+
+	/**
+	 * Replay the trace on #threads threads. Requests are partitioned by the
+	 * requesting workstation, so the order of the requests of one workstation is
+	 * preserved; broadcasts all go to the first partition. Every partition runs
+	 * on its own network obtained from #networks. Once all partitions are done,
+	 * their reports are written on #report, one partition after the other.
+	 * <p>
+	 * <strong>Precondition:</strong> threads > 0;
+	 * </p>
+	 *
+	 * @return the number of requests whose result or report differs from the
+	 *         recorded one.
+	 */
+	public int replayPartitioned(Supplier<Network> networks, int threads, Writer report)
+			throws InterruptedException {
+		assert threads > 0;
+
+		List<List<Entry>> partitions = new ArrayList<>(threads);
+		for (int i = 0; i < threads; i++) {
+			partitions.add(new ArrayList<>());
+		}
+		for (Entry entry : entries_) {
+			int partition = 0;
+			if (entry.kind_ == TraceRecorder.PRINT) {
+				partition = Math.floorMod(entry.workstation_.hashCode(), threads);
+			}
+			partitions.get(partition).add(entry);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> results = new ArrayList<>(threads);
+			List<StringWriter> reports = new ArrayList<>(threads);
+			for (List<Entry> partition : partitions) {
+				StringWriter partitionReport = new StringWriter(500);
+				reports.add(partitionReport);
+				results.add(executor.submit(() -> replay(partition, networks.get(), partitionReport)));
+			}
+
+			int mismatches = 0;
+			for (Future<Integer> result : results) {
+				mismatches += result.get();
+			}
+			try {
+				for (StringWriter partitionReport : reports) {
+					report.append(partitionReport.getBuffer());
+				}
+			} catch (IOException exc) {
+				// just ignore
+			}
+			return mismatches;
+		} catch (ExecutionException exc) {
+			throw new IllegalStateException("Replay failed", exc.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static int replay(List<Entry> entries, Network network, Writer report) {
+		StringWriter requestReport = new StringWriter(500);
+		int mismatches = 0;
+		boolean result;
+
+		for (Entry entry : entries) {
+			requestReport.getBuffer().setLength(0);
+			if (entry.kind_ == TraceRecorder.PRINT) {
+				result = network.requestWorkstationPrintsDocument(entry.workstation_, entry.document_,
+						entry.printer_, requestReport);
+			} else {
+				result = network.requestBroadcast(requestReport);
+			}
+			if ((result != entry.result_) || (TraceRecorder.checksum(requestReport) != entry.checksum_)) {
+				mismatches++;
+			}
+			try {
+				report.append(requestReport.getBuffer());
+			} catch (IOException exc) {
+				// just ignore
+			}
+		}
+		return mismatches;
+	}
+}
@@ -0,0 +1,111 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * An <em>AddressTable</em> assigns every registered <em>Node</em> a dense
+ * integer address, so that packets can be routed by comparing integers rather
+ * than names. Names are only resolved back when rendering reports.
+ */
+public class AddressTable {
+	/**
+	 * Holds the registered nodes, indexed by their address.
+	 */
+	private final ArrayList<Node> nodes_;
+	/**
+	 * Maps the names of the registered nodes on their address.
+	 */
+	private final HashMap<String, Integer> addresses_;
+
+	/**
+	 * Construct an empty <em>AddressTable</em> suitable for holding #size nodes.
+	 */
+	public AddressTable(int size) {
+		nodes_ = new ArrayList<>(size);
+		addresses_ = new HashMap<>(size * 2);
+	}
+
+	/**
+	 * Register #node and assign it the next free address. The report lines of
+	 * #node are encoded as well.
+	 * <p>
+	 * <strong>Precondition:</strong> (node.address_ == Node.NO_ADDRESS) &
+	 * (lookup(node.name_) == Node.NO_ADDRESS);
+	 * </p>
+	 *
+	 * @return the address assigned to #node.
+	 */
+	public int register(Node node) {
+		assert node.address_ == Node.NO_ADDRESS;
+		assert lookup(node.name_) == Node.NO_ADDRESS;
+		int address = nodes_.size();
+		nodes_.add(node);
+		addresses_.put(node.name_, address);
+		node.address_ = address;
+		node.encodeActionReports();
+		return address;
+	}
+
+	/**
+	 * Answer the address of the node named #name, or Node.NO_ADDRESS when no such
+	 * node is registered.
+	 */
+	public int lookup(String name) {
+		Integer address = addresses_.get(name);
+		return address == null ? Node.NO_ADDRESS : address;
+	}
+
+	/**
+	 * Answer the node registered at #address.
+	 * <p>
+	 * <strong>Precondition:</strong> (address >= 0) & (address < size());
+	 * </p>
+	 */
+	public Node nodeAt(int address) {
+		return nodes_.get(address);
+	}
+
+	/**
+	 * Answer the name of the node registered at #address.
+	 * <p>
+	 * <strong>Precondition:</strong> (address >= 0) & (address < size());
+	 * </p>
+	 */
+	public String nameOf(int address) {
+		return nodes_.get(address).name_;
+	}
+
+	/**
+	 * Answer whether #node is the node registered at its address.
+	 */
+	public boolean isRegistered(Node node) {
+		return (node.address_ >= 0) && (node.address_ < nodes_.size()) && (nodes_.get(node.address_) == node);
+	}
+
+	/**
+	 * Answer the number of registered nodes.
+	 */
+	public int size() {
+		return nodes_.size();
+	}
+}
@@ -0,0 +1,188 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * A <em>HopReport</em> writes the hops of a packet on a report, at a given
+ * <em>ReportVerbosity</em>. Except at ReportVerbosity.FULL, hops are counted as
+ * a run and summarised by #flush, which must be called before anything else is
+ * written on the report.
+ */
+public class HopReport {
+	/**
+	 * Holds how much is reported about each hop.
+	 */
+	private ReportVerbosity verbosity_;
+	/**
+	 * Holds one in how many hops is reported at ReportVerbosity.SAMPLED.
+	 */
+	private int sampling_;
+	/**
+	 * Holds the number of hops in the current run.
+	 */
+	private long hops_;
+	/**
+	 * Holds whether the current run is a broadcast.
+	 */
+	private boolean broadcast_;
+	/**
+	 * Hold the first and the last node of the current run.
+	 */
+	private Node first_, last_;
+
+	/**
+	 * Construct a <em>HopReport</em> reporting every hop.
+	 */
+	public HopReport() {
+		verbosity_ = ReportVerbosity.FULL;
+		sampling_ = 1000;
+		hops_ = 0;
+	}
+
+	/**
+	 * Answer how much #receiver reports about each hop.
+	 */
+	public ReportVerbosity verbosity() {
+		return verbosity_;
+	}
+
+	/**
+	 * Report each hop at #verbosity from the next run on. The current run is
+	 * counted at one verbosity, so it must be flushed first.
+	 * <p>
+	 * <strong>Precondition:</strong> (verbosity != null) & (no hops counted
+	 * since the last #flush);
+	 * </p>
+	 */
+	public void setVerbosity(ReportVerbosity verbosity) {
+		assert (verbosity != null) & (hops_ == 0);
+		verbosity_ = verbosity;
+	}
+
+	/**
+	 * Answer one in how many hops #receiver reports at ReportVerbosity.SAMPLED.
+	 * <p>
+	 * <strong>Postcondition:</strong> result > 0;
+	 * </p>
+	 */
+	public int sampling() {
+		return sampling_;
+	}
+
+	/**
+	 * Report one in #sampling hops at ReportVerbosity.SAMPLED.
+	 * <p>
+	 * <strong>Precondition:</strong> sampling > 0;
+	 * </p>
+	 */
+	public void setSampling(int sampling) {
+		assert sampling > 0;
+		sampling_ = sampling;
+	}
+
+	/**
+	 * Report that #node performs #actions on a packet and passes it on.
+	 */
+	public void hop(Writer report, Node node, String[] actions) throws IOException {
+		if (counted(node, actions.length > 1)) {
+			for (int i = 0; i < actions.length; i++) {
+				node.logActionReport(report, actions[i]);
+			}
+			report.flush();
+		}
+	}
+
+	/**
+	 * The byte-oriented variant of #hop(Writer, Node, String[]), writing the
+	 * pre-encoded report lines of #node.
+	 */
+	public void hop(ReportChannel report, Node node, boolean broadcast) throws IOException {
+		if (counted(node, broadcast)) {
+			if (broadcast) {
+				report.writeLine(node.acceptsBroadcastReport());
+			}
+			report.writeLine(node.passesPacketOnReport());
+		}
+	}
+
+	/**
+	 * Count the hop at #node, and answer whether it is to be reported in full.
+	 */
+	private boolean counted(Node node, boolean broadcast) {
+		if (verbosity_ == ReportVerbosity.FULL) {
+			return true;
+		}
+		if (hops_ == 0) {
+			first_ = node;
+			broadcast_ = broadcast;
+		}
+		last_ = node;
+		hops_++;
+		return (verbosity_ == ReportVerbosity.SAMPLED) && ((hops_ - 1) % sampling_ == 0);
+	}
+
+	/**
+	 * Write the summary of the current run, if any, and start a new run.
+	 */
+	public void flush(Writer report) throws IOException {
+		String summary = summary();
+		if (summary != null) {
+			report.write(summary);
+			report.flush();
+		}
+	}
+
+	/**
+	 * The byte-oriented variant of #flush(Writer).
+	 */
+	public void flush(ReportChannel report) throws IOException {
+		String summary = summary();
+		if (summary != null) {
+			report.write(summary);
+		}
+	}
+
+	/**
+	 * Answer the summary line of the current run, or null when there is none to
+	 * write, and start a new run.
+	 */
+	private String summary() {
+		long hops = hops_;
+		hops_ = 0;
+		if ((hops == 0) || (verbosity_ == ReportVerbosity.FULL) || (verbosity_ == ReportVerbosity.OUTCOME_ONLY)) {
+			return null;
+		}
+		StringBuilder buf = new StringBuilder(100);
+		buf.append(broadcast_ ? "\tBroadcast packet accepted by and passes through " : "\tPacket passes through ");
+		buf.append(String.format(Locale.ROOT, "%,d", hops)).append(hops == 1 ? " node" : " nodes");
+		buf.append(", from '").append(first_.name_).append("' to '").append(last_.name_).append("'");
+		if (verbosity_ == ReportVerbosity.SAMPLED) {
+			buf.append(", 1 in ").append(sampling_).append(" reported");
+		}
+		buf.append(".\n");
+		first_ = null;
+		last_ = null;
+		return buf.toString();
+	}
+}
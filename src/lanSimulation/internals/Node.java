@@ -21,22 +21,70 @@ package lanSimulation.internals;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A <em>Node</em> represents a single Node in a Local Area Network (LAN).
  * Several types of Nodes exist.
  */
 public class Node {
+	/**
+	 * The address of a Node which is not registered in an AddressTable.
+	 */
+	public static final int NO_ADDRESS = -1;
+	/**
+	 * The action logged by a Node passing a packet on to the next Node.
+	 */
+	public static final String PASSES_PACKET_ON = "' passes packet on.\n";
+	/**
+	 * The action logged by a Node accepting a broadcast packet.
+	 */
+	public static final String ACCEPTS_BROADCAST = "' accepts broadcase packet.\n";
+
 	/**
 	 * Holds the name of the Node.
 	 */
 	public String name_;
+	/**
+	 * Holds the address assigned to the Node when it was registered.
+	 *
+	 * @see lanSimulation.internals.AddressTable
+	 */
+	public int address_;
 	/**
 	 * Holds the next Node in the token ring architecture.
 	 * 
 	 * @see lanSimulation.internals.Node
 	 */
 	public Node nextNode_;
+	/**
+	 * Holds the previous Node in the token ring architecture, when known. Used to
+	 * link a failed Node out of the ring without walking the ring.
+	 */
+	public Node previousNode_;
+	/**
+	 * Holds whether the Node has failed, and thus breaks the token ring until it
+	 * is bypassed.
+	 */
+	public boolean failed_;
+	/**
+	 * Holds whether the Node has been linked out of the token ring.
+	 */
+	public boolean bypassed_;
+	/**
+	 * Holds whether the Node was the first Node of the token ring when it was
+	 * bypassed, so that it becomes first again when it is restored.
+	 */
+	public boolean bypassedFirst_;
+	/**
+	 * Holds the UTF-8 encoded report line for #PASSES_PACKET_ON, once encoded.
+	 */
+	private ByteBuffer passesPacketOnReport_;
+	/**
+	 * Holds the UTF-8 encoded report line for #ACCEPTS_BROADCAST, once encoded.
+	 */
+	private ByteBuffer acceptsBroadcastReport_;
 
 	/**
 	 * Construct a <em>Node</em> with given #type and #name.
@@ -46,7 +94,12 @@ public class Node {
 	 */
 	public Node(String name) {
 		name_ = name;
+		address_ = NO_ADDRESS;
 		nextNode_ = null;
+		previousNode_ = null;
+		failed_ = false;
+		bypassed_ = false;
+		bypassedFirst_ = false;
 	}
 
 	/**
@@ -58,7 +111,12 @@ public class Node {
 	 */
 	public Node(String name, Node nextNode) {
 		name_ = name;
+		address_ = NO_ADDRESS;
 		nextNode_ = nextNode;
+		previousNode_ = null;
+		failed_ = false;
+		bypassed_ = false;
+		bypassedFirst_ = false;
 	}
 
 	/**
@@ -75,6 +133,40 @@ public class Node {
 		report.write(action);
 	}
 
+	/**
+	 * Encode the report lines logged by this node once, so that byte-oriented
+	 * reports can copy them instead of encoding them on every hop. Called when
+	 * the node is registered.
+	 */
+	public void encodeActionReports() {
+		passesPacketOnReport_ = encodeActionReport(PASSES_PACKET_ON);
+		acceptsBroadcastReport_ = encodeActionReport(ACCEPTS_BROADCAST);
+	}
+
+	private ByteBuffer encodeActionReport(String action) {
+		return ByteBuffer.wrap(("\tNode '" + name_ + action).getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Answer the encoded report line for #PASSES_PACKET_ON.
+	 * <p>
+	 * <strong>Precondition:</strong> encodeActionReports() has been called;
+	 * </p>
+	 */
+	public ByteBuffer passesPacketOnReport() {
+		return passesPacketOnReport_;
+	}
+
+	/**
+	 * Answer the encoded report line for #ACCEPTS_BROADCAST.
+	 * <p>
+	 * <strong>Precondition:</strong> encodeActionReports() has been called;
+	 * </p>
+	 */
+	public ByteBuffer acceptsBroadcastReport() {
+		return acceptsBroadcastReport_;
+	}
+
 	/**
 	 * Prints the name of the node and the type of the node.
 	 *
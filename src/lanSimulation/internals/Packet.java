@@ -20,6 +20,7 @@
 package lanSimulation.internals;
 
 import lanSimulation.Network;
+import lanSimulation.jfr.DeliveryEvent;
 
 import java.io.IOException;
 import java.io.Writer;
@@ -40,6 +41,22 @@ public class Packet {
     Holds the name of the Node which should receive the information.
 	 */
 	public String destination_;
+	/**
+    Holds the address of the Node which initiated the request.
+	 */
+	public int originAddress_;
+	/**
+    Holds the address of the Node which should receive the information.
+	 */
+	public int destinationAddress_;
+	/**
+    Holds the access priority of the Packet, between 0 and 7, as in the 802.5 token ring.
+	 */
+	public int priority_;
+	/**
+    Holds the reservation bits of the Packet: the highest priority some Node is waiting to transmit at.
+	 */
+	public int reservation_;
 
 	/**
 Construct a <em>Packet</em> with given #message and #destination.
@@ -48,6 +65,10 @@ Construct a <em>Packet</em> with given #message and #destination.
 		message_ = message;
 		origin_ = "";
 		destination_ = destination;
+		originAddress_ = Node.NO_ADDRESS;
+		destinationAddress_ = Node.NO_ADDRESS;
+		priority_ = 0;
+		reservation_ = 0;
 	}
 
 	/**
@@ -57,8 +78,75 @@ Construct a <em>Packet</em> with given #message, #origin and #receiver.
 		message_ = message;
 		origin_ = origin;
 		destination_ = destination;
+		originAddress_ = Node.NO_ADDRESS;
+		destinationAddress_ = Node.NO_ADDRESS;
+		priority_ = 0;
+		reservation_ = 0;
+	}
+
+	/**
+Reinitialise #receiver with given #message, #origin and #destination, so that it can be reused for another request.
+	 */
+	public void reset(String message, String origin, String destination) {
+		message_ = message;
+		origin_ = origin;
+		destination_ = destination;
+		originAddress_ = Node.NO_ADDRESS;
+		destinationAddress_ = Node.NO_ADDRESS;
+		priority_ = 0;
+		reservation_ = 0;
 	}
 
+    /**
+     * Answer whether the message is a postscript document, i.e. starts with "!PS".
+     */
+    public boolean isPostscript() {
+        return message_.startsWith("!PS");
+    }
+
+    /**
+     * Answer the author of the document. For postscript it follows the keyword "author:" up to the next ".", for
+     * ASCII it is found at characters 8 to 16.
+     */
+    public String author() {
+        if (isPostscript()) {
+            return headerField("author:", "Unknown");
+        } else if (message_.length() >= 16) {
+            return message_.substring(8, 16);
+        } else {
+            return "Unknown";
+        }
+    }
+
+    /**
+     * Answer the title of the document. For postscript it follows the keyword "title:" up to the next ".", ASCII
+     * documents are titled "ASCII DOCUMENT".
+     */
+    public String title() {
+        if (isPostscript()) {
+            return headerField("title:", "Untitled");
+        } else {
+            return "ASCII DOCUMENT";
+        }
+    }
+
+    /**
+     * Answer the text following #keyword up to the next "." or the end of the message, or #absent when the message
+     * does not contain #keyword.
+     */
+    private String headerField(String keyword, String absent) {
+        int startPos = message_.indexOf(keyword), endPos;
+
+        if (startPos < 0) {
+            return absent;
+        }
+        endPos = message_.indexOf(".", startPos + keyword.length());
+        if (endPos < 0) {
+            endPos = message_.length();
+        }
+        return message_.substring(startPos + keyword.length(), endPos);
+    }
+
     /**
      * If the destination is a printer, then print the document and write a message to the report file
      *
@@ -68,49 +156,49 @@ Construct a <em>Packet</em> with given #message, #origin and #receiver.
      * @return A boolean value.
      */
     public boolean printDocument(Node printer, Writer report, Network network) {
-        String author = "Unknown";
-        String title = "Untitled";
-        int startPos = 0, endPos = 0;
+        return printDocument(printer, report, network, author(), title());
+    }
 
+    /**
+     * As #printDocument(Node, Writer, Network), with the #author and #title already parsed from the header. A packet
+     * delivered to several printers parses its header once.
+     */
+    public boolean printDocument(Node printer, Writer report, Network network, String author, String title) {
+        if (!DeliveryEvent.enabled()) {
+            return deliver(printer, report, network, author, title);
+        }
+        DeliveryEvent event = new DeliveryEvent();
+        boolean printed;
+
+        event.begin();
+        printed = deliver(printer, report, network, author, title);
+        event.end();
+        if (event.shouldCommit()) {
+            event.node = printer.name_;
+            event.origin = origin_;
+            event.documentType = isPostscript() ? "Postscript" : "ASCII";
+            event.documentLength = message_.length();
+            event.printed = printed;
+            event.commit();
+        }
+        return printed;
+    }
+
+    /**
+     * Handle #receiver at #printer, as in #printDocument but without recording a DeliveryEvent.
+     */
+    private boolean deliver(Node printer, Writer report, Network network, String author, String title) {
         if (printer instanceof Printer) {
             try {
-                if (message_.startsWith("!PS")) {
-
+                if (isPostscript()) {
                     String status = ">>> Postscript job delivered.\n\n"; // New
-                    startPos = message_.indexOf("author:");
-
-                    if (startPos >= 0) {
-                        endPos = message_.indexOf(".", startPos + 7);
-                        if (endPos < 0) {
-                            endPos = message_.length();
-                        }
-
-                        author = message_.substring(startPos + 7, endPos);
-                    }
-
-                    startPos = message_.indexOf("title:");
-
-                    if (startPos >= 0) {
-                        endPos = message_.indexOf(".", startPos + 6);
-                        if (endPos < 0) {
-                            endPos = message_.length();
-                        }
-
-                        title = message_.substring(startPos + 6, endPos);
-                    }
 
                     network.printAccounting(report, author, title, status); // Changed
                 }
 
                 else {
-
-                    title = "ASCII DOCUMENT";
                     String status = ">>> ASCII Print job delivered.\n\n"; // New
 
-                    if (message_.length() >= 16) {
-                        author = message_.substring(8, 16);
-                    }
-
                     network.printAccounting(report, author, title, status); // Changed
                 }
 
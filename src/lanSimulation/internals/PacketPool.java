@@ -0,0 +1,81 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.util.ArrayDeque;
+
+/**
+ * A <em>PacketPool</em> keeps a bounded number of released <em>Packet</em>s
+ * around, so that request paths can reuse them instead of allocating a fresh
+ * packet for every request.
+ */
+public class PacketPool {
+	/**
+	 * Holds the packets which are free to be handed out again.
+	 */
+	private final ArrayDeque<Packet> free_;
+	/**
+	 * Holds the maximum number of free packets kept by the pool.
+	 */
+	private final int capacity_;
+
+	/**
+	 * Construct a <em>PacketPool</em> which keeps at most #capacity free packets.
+	 * <p>
+	 * <strong>Precondition:</strong> capacity > 0;
+	 * </p>
+	 */
+	public PacketPool(int capacity) {
+		assert capacity > 0;
+		free_ = new ArrayDeque<>(capacity);
+		capacity_ = capacity;
+	}
+
+	/**
+	 * Answer a packet holding #message, #origin and #destination. A released
+	 * packet is reused when available, otherwise a new one is created.
+	 */
+	public Packet acquire(String message, String origin, String destination) {
+		Packet packet = free_.pollFirst();
+		if (packet == null) {
+			return new Packet(message, origin, destination);
+		}
+		packet.reset(message, origin, destination);
+		return packet;
+	}
+
+	/**
+	 * Hand #packet back to the pool. The packet must not be used by the caller
+	 * afterwards. Packets beyond the capacity of the pool are simply dropped.
+	 */
+	public void release(Packet packet) {
+		if (free_.size() < capacity_) {
+			packet.reset(null, null, null);
+			free_.addFirst(packet);
+		}
+	}
+
+	/**
+	 * Answer the number of packets that can be handed out without allocating.
+	 */
+	public int available() {
+		return free_.size();
+	}
+}
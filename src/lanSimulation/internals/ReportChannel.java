@@ -0,0 +1,99 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A <em>ReportChannel</em> writes a report as bytes on a
+ * <em>GatheringByteChannel</em>, typically a <em>FileChannel</em>. Pre-encoded
+ * lines, such as the report lines cached by each <em>Node</em>, are collected
+ * in batches and handed to the channel with a single gathering write.
+ */
+public class ReportChannel {
+	/**
+	 * The number of lines collected before they are written.
+	 */
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * Holds the channel receiving the report.
+	 */
+	private final GatheringByteChannel channel_;
+	/**
+	 * Holds the lines collected since the last write.
+	 */
+	private final ByteBuffer[] batch_;
+	/**
+	 * Holds the number of lines in #batch_.
+	 */
+	private int batched_;
+
+	/**
+	 * Construct a <em>ReportChannel</em> writing on #channel.
+	 */
+	public ReportChannel(GatheringByteChannel channel) {
+		channel_ = channel;
+		batch_ = new ByteBuffer[BATCH_SIZE];
+		batched_ = 0;
+	}
+
+	/**
+	 * Append the pre-encoded #line. The line is shared, so its position is
+	 * restored once it has been written.
+	 */
+	public void writeLine(ByteBuffer line) throws IOException {
+		batch_[batched_++] = line;
+		if (batched_ == BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Append #text, encoded as UTF-8.
+	 */
+	public void write(String text) throws IOException {
+		writeLine(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Write all collected lines on the channel.
+	 */
+	public void flush() throws IOException {
+		if (batched_ == 0) {
+			return;
+		}
+		int start = 0;
+		while (start < batched_) {
+			channel_.write(batch_, start, batched_ - start);
+			while ((start < batched_) && !batch_[start].hasRemaining()) {
+				start++;
+			}
+		}
+		for (int i = 0; i < batched_; i++) {
+			batch_[i].rewind();
+			batch_[i] = null;
+		}
+		batched_ = 0;
+	}
+}
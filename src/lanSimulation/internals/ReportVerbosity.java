@@ -0,0 +1,43 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+/**
+ * A <em>ReportVerbosity</em> tells how much a <em>Network</em> reports about
+ * the nodes a packet passes on its way.
+ */
+public enum ReportVerbosity {
+	/**
+	 * Report every hop, as a line per node.
+	 */
+	FULL,
+	/**
+	 * Report each run of consecutive hops as a single summary line.
+	 */
+	COLLAPSED,
+	/**
+	 * Report one hop in every #HopReport.sampling() hops, and summarise the run.
+	 */
+	SAMPLED,
+	/**
+	 * Report no hops, only the outcome of each request.
+	 */
+	OUTCOME_ONLY
+}
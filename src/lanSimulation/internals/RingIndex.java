@@ -0,0 +1,355 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.internals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * A <em>RingIndex</em> is a snapshot of the order of the nodes on a token ring.
+ * It answers hop distances in O(1) and the nearest printers of a node in
+ * O(log n + k) from the position of every node on the ring. Nodes linked out of
+ * the ring and back in at their own place are tracked in O(log n) by #linkOut
+ * and #linkIn, after which hop distances take O(log n) as well; the index must
+ * be rebuilt whenever the ring changes otherwise.
+ */
+public class RingIndex {
+	/**
+	 * Holds the nodes in ring order, starting at the first node when the index
+	 * was built, including the nodes linked out since.
+	 */
+	private final Node[] ring_;
+	/**
+	 * Holds the position in #ring_ of every node, indexed by address.
+	 */
+	private final int[] offsets_;
+	/**
+	 * Holds the positions in #ring_ of the printers, in ascending order.
+	 */
+	private final int[] printerOffsets_;
+	/**
+	 * Holds whether the node at each position in #ring_ is linked out; null
+	 * until a node is linked out.
+	 */
+	private boolean[] linkedOut_;
+	/**
+	 * Holds a Fenwick tree counting the nodes linked out before each position in
+	 * #ring_; null until a node is linked out.
+	 */
+	private int[] linkedOutTree_;
+	/**
+	 * Holds the number of nodes linked out, and how many of them are printers.
+	 */
+	private int linkedOutCount_, linkedOutPrinters_;
+	/**
+	 * Holds the position in #ring_ of the first node.
+	 */
+	private int first_;
+
+	/**
+	 * Construct a <em>RingIndex</em> of the ring starting at #firstNode, whose
+	 * nodes all have an address below #addresses.
+	 */
+	public RingIndex(Node firstNode, int addresses) {
+		ArrayList<Node> nodes = new ArrayList<>(addresses);
+		int printers = 0;
+		Node currentNode = firstNode;
+
+		do {
+			nodes.add(currentNode);
+			if (currentNode instanceof Printer) {
+				printers++;
+			}
+			currentNode = currentNode.nextNode_;
+		} while (currentNode != firstNode);
+
+		ring_ = nodes.toArray(new Node[0]);
+		offsets_ = new int[addresses];
+		Arrays.fill(offsets_, -1);
+		printerOffsets_ = new int[printers];
+		printers = 0;
+		for (int offset = 0; offset < ring_.length; offset++) {
+			offsets_[ring_[offset].address_] = offset;
+			if (ring_[offset] instanceof Printer) {
+				printerOffsets_[printers++] = offset;
+			}
+		}
+		linkedOutCount_ = 0;
+		linkedOutPrinters_ = 0;
+		first_ = 0;
+	}
+
+	/**
+	 * Answer the number of nodes on the ring.
+	 */
+	public int size() {
+		return ring_.length - linkedOutCount_;
+	}
+
+	/**
+	 * Answer the number of printers on the ring.
+	 */
+	public int printerCount() {
+		return printerOffsets_.length - linkedOutPrinters_;
+	}
+
+	/**
+	 * Answer the position of #node on the ring, counted from the first node, or
+	 * -1 when #node is not on the ring.
+	 */
+	public int offsetOf(Node node) {
+		if (!contains(node)) {
+			return -1;
+		}
+		return Math.floorMod(rank(offsets_[node.address_]) - rank(first_), size());
+	}
+
+	/**
+	 * Answer whether #node is on the ring.
+	 */
+	public boolean contains(Node node) {
+		return (node.address_ >= 0) && (node.address_ < offsets_.length) && (offsets_[node.address_] >= 0)
+				&& (ring_[offsets_[node.address_]] == node) && !isLinkedOut(offsets_[node.address_]);
+	}
+
+	/**
+	 * Answer the node preceding #node on the ring.
+	 * <p>
+	 * <strong>Precondition:</strong> contains(node);
+	 * </p>
+	 */
+	public Node previousOf(Node node) {
+		int position = offsets_[node.address_];
+		do {
+			position = Math.floorMod(position - 1, ring_.length);
+		} while (isLinkedOut(position));
+		return ring_[position];
+	}
+
+	/**
+	 * Answer the node at #offset on the ring.
+	 * <p>
+	 * <strong>Precondition:</strong> (offset >= 0) & (offset < size());
+	 * </p>
+	 */
+	public Node nodeAt(int offset) {
+		return ring_[positionOfRank((rank(first_) + offset) % size())];
+	}
+
+	/**
+	 * Answer a spliterator over the nodes in ring order, starting at the first
+	 * node. It knows its exact size and splits in balanced halves, so parallel
+	 * streams over the ring scale with the number of processors. Once nodes were
+	 * linked out or the first node moved, the nodes are copied first.
+	 */
+	public Spliterator<Node> spliterator() {
+		if ((linkedOutCount_ == 0) && (first_ == 0)) {
+			return Arrays.spliterator(ring_);
+		}
+		Node[] nodes = new Node[size()];
+		int position = first_;
+		for (int i = 0; i < nodes.length; position = (position + 1) % ring_.length) {
+			if (!isLinkedOut(position)) {
+				nodes[i++] = ring_[position];
+			}
+		}
+		return Arrays.spliterator(nodes);
+	}
+
+	/**
+	 * Answer the number of hops a packet travels from #from to #to.
+	 * <p>
+	 * <strong>Precondition:</strong> contains(from) & contains(to);
+	 * </p>
+	 */
+	public int hopDistance(Node from, Node to) {
+		return Math.floorMod(rank(offsets_[to.address_]) - rank(offsets_[from.address_]), size());
+	}
+
+	/**
+	 * Answer the nodes a packet visits travelling from #from to #to, both
+	 * included.
+	 * <p>
+	 * <strong>Precondition:</strong> contains(from) & contains(to);
+	 * </p>
+	 */
+	public List<Node> path(Node from, Node to) {
+		int hops = hopDistance(from, to), position = offsets_[from.address_];
+		ArrayList<Node> path = new ArrayList<>(hops + 1);
+
+		path.add(from);
+		while (path.size() <= hops) {
+			position = (position + 1) % ring_.length;
+			if (!isLinkedOut(position)) {
+				path.add(ring_[position]);
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Answer at most #k printers, ordered by the number of hops a packet travels
+	 * from #from to reach them.
+	 * <p>
+	 * <strong>Precondition:</strong> contains(from) & (k >= 0);
+	 * </p>
+	 */
+	public List<Node> nearestPrinters(Node from, int k) {
+		return nearestPrinters(from, k, false);
+	}
+
+	/**
+	 * Answer at most #k printers, ordered by the number of hops a packet travels
+	 * from #from to reach them. When #bothWays, a printer is reached in the
+	 * direction with the fewest hops, the forward one on a tie.
+	 * <p>
+	 * <strong>Precondition:</strong> contains(from) & (k >= 0);
+	 * </p>
+	 */
+	public List<Node> nearestPrinters(Node from, int k, boolean bothWays) {
+		int count = Math.min(k, printerCount()), offset = offsets_[from.address_], rank = rank(offset);
+		ArrayList<Node> printers = new ArrayList<>(count);
+
+		if (count == 0) {
+			return printers;
+		}
+		int first = Arrays.binarySearch(printerOffsets_, offset);
+		if (first < 0) {
+			first = -first - 1;
+		}
+		// forward walks up from the first printer at or after #from, backward walks down from the one before it;
+		// both together never take more printers than are on the ring, so no printer is taken twice
+		int forward = first, backward = first - 1;
+		for (int i = 0; i < count; i++) {
+			while (isLinkedOut(printerOffsets_[Math.floorMod(forward, printerOffsets_.length)])) {
+				forward++;
+			}
+			while (isLinkedOut(printerOffsets_[Math.floorMod(backward, printerOffsets_.length)])) {
+				backward--;
+			}
+			int ahead = printerOffsets_[Math.floorMod(forward, printerOffsets_.length)];
+			int behind = printerOffsets_[Math.floorMod(backward, printerOffsets_.length)];
+			if (!bothWays || Math.floorMod(rank(ahead) - rank, size()) <= Math.floorMod(rank - rank(behind), size())) {
+				printers.add(ring_[ahead]);
+				forward++;
+			} else {
+				printers.add(ring_[behind]);
+				backward--;
+			}
+		}
+		return printers;
+	}
+
+	/**
+	 * Tell #receiver that #node was linked out of the ring, and that #firstNode
+	 * is now the first node.
+	 * <p>
+	 * <strong>Precondition:</strong> contains(node) & (size() > 1) &
+	 * (firstNode != node) & contains(firstNode);
+	 * </p>
+	 */
+	public void linkOut(Node node, Node firstNode) {
+		assert contains(node) & (size() > 1) & (firstNode != node) & contains(firstNode);
+		if (linkedOut_ == null) {
+			linkedOut_ = new boolean[ring_.length];
+			linkedOutTree_ = new int[ring_.length + 1];
+		}
+		int position = offsets_[node.address_];
+		linkedOut_[position] = true;
+		countLinkedOut(position, 1);
+		if (node instanceof Printer) {
+			linkedOutPrinters_++;
+		}
+		first_ = offsets_[firstNode.address_];
+	}
+
+	/**
+	 * Tell #receiver that #node was linked back in the ring at the place it was
+	 * linked out from, and that #firstNode is now the first node.
+	 * <p>
+	 * <strong>Precondition:</strong> firstNode is on the ring;
+	 * </p>
+	 *
+	 * @return Answer #true when #node was linked out of #receiver, and #false
+	 *         when #receiver does not know #node and must be rebuilt.
+	 */
+	public boolean linkIn(Node node, Node firstNode) {
+		if ((node.address_ < 0) || (node.address_ >= offsets_.length) || (offsets_[node.address_] < 0)
+				|| (ring_[offsets_[node.address_]] != node) || !isLinkedOut(offsets_[node.address_])) {
+			return false;
+		}
+		int position = offsets_[node.address_];
+		linkedOut_[position] = false;
+		countLinkedOut(position, -1);
+		if (node instanceof Printer) {
+			linkedOutPrinters_--;
+		}
+		first_ = offsets_[firstNode.address_];
+		return true;
+	}
+
+	private boolean isLinkedOut(int position) {
+		return (linkedOut_ != null) && linkedOut_[position];
+	}
+
+	/**
+	 * Add #delta to the number of nodes linked out at #position.
+	 */
+	private void countLinkedOut(int position, int delta) {
+		linkedOutCount_ += delta;
+		for (int i = position + 1; i < linkedOutTree_.length; i += i & -i) {
+			linkedOutTree_[i] += delta;
+		}
+	}
+
+	/**
+	 * Answer the number of nodes on the ring before #position in #ring_.
+	 */
+	private int rank(int position) {
+		int rank = position;
+		if (linkedOutCount_ > 0) {
+			for (int i = position; i > 0; i -= i & -i) {
+				rank -= linkedOutTree_[i];
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * Answer the position in #ring_ of the node on the ring with #rank nodes on
+	 * the ring before it.
+	 */
+	private int positionOfRank(int rank) {
+		if (linkedOutCount_ == 0) {
+			return rank;
+		}
+		int position = 0;
+		for (int step = Integer.highestOneBit(ring_.length); step > 0; step >>= 1) {
+			int next = position + step;
+			if ((next < linkedOutTree_.length) && (step - linkedOutTree_[next] <= rank)) {
+				position = next;
+				rank -= step - linkedOutTree_[next];
+			}
+		}
+		return position;
+	}
+}
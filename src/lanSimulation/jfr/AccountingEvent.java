@@ -0,0 +1,50 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * An <em>AccountingEvent</em> records a printer writing its accounting line on
+ * the report. Only writes slower than the threshold are recorded by default.
+ */
+@Name("lanSimulation.Accounting")
+@Label("Accounting")
+@Category({ "LAN Simulation", "Report" })
+@Description("A printer writes its accounting line on the report")
+@Threshold("100 us")
+@StackTrace(false)
+public class AccountingEvent extends Event {
+	private static final EventType TYPE = EventType.getEventType(AccountingEvent.class);
+
+	@Label("Author")
+	public String author;
+
+	@Label("Title")
+	public String title;
+
+	/**
+	 * Answer whether accounting lines are being recorded. Costs a single check,
+	 * so that requests allocate no event while they are not.
+	 */
+	public static boolean enabled() {
+		return TYPE.isEnabled();
+	}
+}
@@ -0,0 +1,49 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A <em>BroadcastEvent</em> records a broadcast travelling the token ring.
+ */
+@Name("lanSimulation.Broadcast")
+@Label("Broadcast")
+@Category({ "LAN Simulation", "Packets" })
+@Description("A broadcast packet travels the whole token ring")
+@Threshold("1 ms")
+@StackTrace(false)
+public class BroadcastEvent extends Event {
+	private static final EventType TYPE = EventType.getEventType(BroadcastEvent.class);
+
+	@Label("Origin")
+	public String origin;
+
+	@Label("Succeeded")
+	public boolean succeeded;
+
+	/**
+	 * Answer whether broadcasts are being recorded. Costs a single check, so that
+	 * requests allocate no event while they are not.
+	 */
+	public static boolean enabled() {
+		return TYPE.isEnabled();
+	}
+}
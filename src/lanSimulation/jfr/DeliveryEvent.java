@@ -0,0 +1,61 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A <em>DeliveryEvent</em> records a print packet being handled at its
+ * destination. Only deliveries slower than the threshold are recorded by
+ * default, which singles out the ones stalled by I/O or GC.
+ */
+@Name("lanSimulation.Delivery")
+@Label("Delivery")
+@Category({ "LAN Simulation", "Packets" })
+@Description("A print packet is handled at its destination")
+@Threshold("100 us")
+@StackTrace(false)
+public class DeliveryEvent extends Event {
+	private static final EventType TYPE = EventType.getEventType(DeliveryEvent.class);
+
+	@Label("Node")
+	public String node;
+
+	@Label("Origin")
+	public String origin;
+
+	@Label("Document Type")
+	public String documentType;
+
+	@Label("Document Length")
+	@DataAmount
+	public int documentLength;
+
+	@Label("Printed")
+	public boolean printed;
+
+	/**
+	 * Answer whether deliveries are being recorded. Costs a single check, so that
+	 * requests allocate no event while they are not.
+	 */
+	public static boolean enabled() {
+		return TYPE.isEnabled();
+	}
+}
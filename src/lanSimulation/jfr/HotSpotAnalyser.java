@@ -0,0 +1,193 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * A <em>HotSpotAnalyser</em> summarises a JFR recording of a simulation per
+ * node: the (estimated) number of hops, and the number, total and maximum
+ * duration of the recorded deliveries. Nodes are listed hottest first.
+ */
+public class HotSpotAnalyser {
+	/**
+	 * Maps the names of the nodes on their statistics.
+	 */
+	private final Map<String, NodeStatistics> nodes_ = new HashMap<>();
+	/**
+	 * Holds the number of broadcasts recorded.
+	 */
+	private long broadcasts_ = 0;
+	/**
+	 * Holds the total duration of the broadcasts recorded.
+	 */
+	private Duration broadcastTime_ = Duration.ZERO;
+	/**
+	 * Holds the number of accountings recorded.
+	 */
+	private long accountings_ = 0;
+	/**
+	 * Holds the total duration of the accountings recorded.
+	 */
+	private Duration accountingTime_ = Duration.ZERO;
+
+	/**
+	 * Answer a <em>HotSpotAnalyser</em> holding the lanSimulation events found in
+	 * #recording.
+	 */
+	public static HotSpotAnalyser analyse(Path recording) throws IOException {
+		HotSpotAnalyser result = new HotSpotAnalyser();
+		try (RecordingFile file = new RecordingFile(recording)) {
+			while (file.hasMoreEvents()) {
+				result.add(file.readEvent());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Account for #event, ignoring events not emitted by lanSimulation.
+	 */
+	public void add(RecordedEvent event) {
+		switch (event.getEventType().getName()) {
+		case "lanSimulation.PacketHop":
+			statisticsOf(event.getString("node")).hops_ += event.getInt("sampleWeight");
+			break;
+		case "lanSimulation.Delivery":
+			statisticsOf(event.getString("node")).delivered(event.getDuration());
+			break;
+		case "lanSimulation.Broadcast":
+			broadcasts_++;
+			broadcastTime_ = broadcastTime_.plus(event.getDuration());
+			break;
+		case "lanSimulation.Accounting":
+			accountings_++;
+			accountingTime_ = accountingTime_.plus(event.getDuration());
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Answer the statistics of #node, created when #node was not seen before.
+	 */
+	private NodeStatistics statisticsOf(String node) {
+		return nodes_.computeIfAbsent(node, NodeStatistics::new);
+	}
+
+	/**
+	 * Answer the estimated number of hops recorded at #node.
+	 */
+	public long hopsAt(String node) {
+		NodeStatistics statistics = nodes_.get(node);
+		return statistics == null ? 0 : statistics.hops_;
+	}
+
+	/**
+	 * Answer the number of deliveries recorded at #node.
+	 */
+	public long deliveriesAt(String node) {
+		NodeStatistics statistics = nodes_.get(node);
+		return statistics == null ? 0 : statistics.deliveries_;
+	}
+
+	/**
+	 * Write the per node summary on #buf, hottest node first, followed by the
+	 * totals for broadcasts and accounting.
+	 */
+	public void printOn(StringBuffer buf) {
+		List<NodeStatistics> sorted = new ArrayList<>(nodes_.values());
+		sorted.sort(Comparator.comparingLong((NodeStatistics each) -> each.hops_).reversed()
+				.thenComparing(Comparator.comparing((NodeStatistics each) -> each.deliveryTime_).reversed())
+				.thenComparing(each -> each.name_));
+		buf.append("node\thops\tdeliveries\tdelivery us\tmax delivery us\n");
+		for (NodeStatistics each : sorted) {
+			buf.append(each.name_).append('\t').append(each.hops_).append('\t').append(each.deliveries_).append('\t')
+					.append(each.deliveryTime_.toNanos() / 1000).append('\t').append(each.maxDelivery_.toNanos() / 1000)
+					.append('\n');
+		}
+		buf.append("broadcasts: ").append(broadcasts_).append(" (").append(broadcastTime_.toNanos() / 1000)
+				.append(" us)\n");
+		buf.append("accounting: ").append(accountings_).append(" (").append(accountingTime_.toNanos() / 1000)
+				.append(" us)\n");
+	}
+
+	/**
+	 * Summarise the recording named by the first argument on standard output.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("Usage: java lanSimulation.jfr.HotSpotAnalyser recording.jfr");
+			return;
+		}
+		StringBuffer buf = new StringBuffer();
+		analyse(Paths.get(args[0])).printOn(buf);
+		System.out.print(buf);
+	}
+
+	/**
+	 * What was recorded at one node.
+	 */
+	private static class NodeStatistics {
+		/**
+		 * Holds the name of the node.
+		 */
+		final String name_;
+		/**
+		 * Holds the estimated number of hops, the sampled hops times their weight.
+		 */
+		long hops_ = 0;
+		/**
+		 * Holds the number of deliveries recorded.
+		 */
+		long deliveries_ = 0;
+		/**
+		 * Holds the total and the longest duration of the deliveries recorded.
+		 */
+		Duration deliveryTime_ = Duration.ZERO, maxDelivery_ = Duration.ZERO;
+
+		NodeStatistics(String name) {
+			name_ = name;
+		}
+
+		/**
+		 * Count a delivery which took #duration.
+		 */
+		void delivered(Duration duration) {
+			deliveries_++;
+			deliveryTime_ = deliveryTime_.plus(duration);
+			if (duration.compareTo(maxDelivery_) > 0) {
+				maxDelivery_ = duration;
+			}
+		}
+	}
+}
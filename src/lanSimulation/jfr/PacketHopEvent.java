@@ -0,0 +1,108 @@
+/*   This file is part of lanSimulation.
+ *
+ *   lanSimulation is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation; either version 2 of the License, or
+ *   (at your option) any later version.
+ *
+ *   lanSimulation is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with lanSimulation; if not, write to the Free Software
+ *   Foundation, Inc. 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ *   Copyright original Java version: 2004 Bart Du Bois, Serge Demeyer
+ *   Copyright C++ version: 2006 Matthias Rieger, Bart Van Rompaey
+ */
+package lanSimulation.jfr;
+
+import lanSimulation.internals.*;
+import jdk.jfr.*;
+
+/**
+ * A <em>PacketHopEvent</em> records a node passing a packet on. Hops are by far
+ * the most frequent events, so the event is disabled by default, and when
+ * enabled only one hop in #sampling() is recorded. Every recorded hop carries
+ * its sample weight, so that totals can be estimated. Each thread counts down
+ * its own hops, so networks simulated in parallel are sampled independently.
+ */
+@Name("lanSimulation.PacketHop")
+@Label("Packet Hop")
+@Category({ "LAN Simulation", "Packets" })
+@Description("A node passes a packet on to the next node; sampled")
+@Enabled(false)
+@StackTrace(false)
+public class PacketHopEvent extends Event {
+	private static final EventType TYPE = EventType.getEventType(PacketHopEvent.class);
+	/**
+	 * Holds the number of hops per hop recorded: one in every #sampling_ hops is
+	 * recorded.
+	 */
+	private static volatile int sampling_ = Integer.getInteger("lanSimulation.jfr.hopSampling", 100);
+	/**
+	 * Holds, per thread, the number of hops left until the next one recorded.
+	 */
+	private static final ThreadLocal<int[]> COUNTDOWN = ThreadLocal.withInitial(() -> new int[1]);
+
+	@Label("Node")
+	public String node;
+
+	@Label("Node Address")
+	public int nodeAddress;
+
+	@Label("Origin")
+	public String origin;
+
+	@Label("Destination")
+	public String destination;
+
+	@Label("Sample Weight")
+	@Description("Number of hops this event stands for")
+	public int sampleWeight;
+
+	/**
+	 * Record that #node passes #packet on, if hop events are enabled and this hop
+	 * is sampled. Costs a single check when hop events are disabled.
+	 */
+	public static void emit(Node node, Packet packet) {
+		if (!TYPE.isEnabled()) {
+			return;
+		}
+		int[] countdown = COUNTDOWN.get();
+		if (--countdown[0] <= 0) {
+			int sampling = sampling_;
+			countdown[0] = sampling;
+			PacketHopEvent event = new PacketHopEvent();
+			event.node = node.name_;
+			event.nodeAddress = node.address_;
+			event.origin = packet.origin_;
+			event.destination = packet.destination_;
+			event.sampleWeight = sampling;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Answer one in how many hops is recorded.
+	 */
+	public static int sampling() {
+		return sampling_;
+	}
+
+	/**
+	 * Record one in #sampling hops. Defaults to the system property
+	 * "lanSimulation.jfr.hopSampling", or 100. Threads take the new rate after
+	 * their next recorded hop; the calling thread records its next hop.
+	 * <p>
+	 * <strong>Precondition:</strong> sampling > 0;
+	 * </p>
+	 */
+	public static void setSampling(int sampling) {
+		assert sampling > 0;
+		sampling_ = sampling;
+		COUNTDOWN.get()[0] = 0;
+	}
+}
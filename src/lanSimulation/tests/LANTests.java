@@ -21,8 +21,33 @@ package lanSimulation.tests;
 
 import lanSimulation.internals.*;
 import lanSimulation.*;
+import lanSimulation.jfr.*;
 import junit.framework.*;
+import jdk.jfr.Recording;
 import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 public class LANTests extends TestCase {
 
@@ -41,6 +66,24 @@ public class LANTests extends TestCase {
 		assertEquals("origin_ (after setting)", packet.origin_, "o");
 	}
 
+	/**
+	 * A released packet is handed out again by the pool, reinitialised with the new contents.
+	 */
+	public void testPacketPool() {
+		PacketPool pool = new PacketPool(1);
+		Packet first, second;
+
+		first = pool.acquire("c", "o", "a");
+		assertEquals("available (while in use)", pool.available(), 0);
+		pool.release(first);
+		assertEquals("available (after release)", pool.available(), 1);
+		second = pool.acquire("d", "p", "b");
+		assertSame("reused packet", first, second);
+		assertEquals("message_", second.message_, "d");
+		assertEquals("origin_", second.origin_, "p");
+		assertEquals("destination_", second.destination_, "b");
+	}
+
 	private boolean compareFiles(String filename1, String filename2) {
 		FileInputStream f1, f2;
 		int b1 = 0, b2 = 0;
@@ -105,6 +148,23 @@ public class LANTests extends TestCase {
 		assertEquals("nextNode_ (after setting)", node.nextNode_, node);
 	}
 
+	/**
+	 * Registered nodes get dense addresses which resolve back to their names.
+	 */
+	public void testAddressTable() {
+		AddressTable table = new AddressTable(2);
+		Node n = new Node("n"), m = new Node("m");
+
+		assertEquals("address_ (before registering)", n.address_, Node.NO_ADDRESS);
+		assertEquals("register n", table.register(n), 0);
+		assertEquals("register m", table.register(m), 1);
+		assertEquals("lookup", table.lookup("m"), 1);
+		assertEquals("lookup (unknown)", table.lookup("x"), Node.NO_ADDRESS);
+		assertEquals("nameOf", table.nameOf(0), "n");
+		assertTrue("isRegistered", table.isRegistered(m));
+		assertFalse("isRegistered (unknown)", table.isRegistered(new Node("x")));
+	}
+
 	/**
 	 * * The function `testDefaultNetworkToString()` tests the `toString()` method of the `Network` class
 	 */
@@ -117,6 +177,20 @@ public class LANTests extends TestCase {
 				"Workstation Filip [Workstation] -> Node n1 [Node] -> Workstation Hans [Workstation] -> Printer Andy [Printer] ->  ... ");
 	}
 
+	/**
+	 * Streams over the ring visit every node once, in ring order.
+	 */
+	public void testStream() {
+		Network network = Network.DefaultExample();
+
+		assertEquals("count", network.stream().count(), 4);
+		assertEquals("printers", network.parallelStream().filter(node -> node instanceof Printer).count(), 1);
+		assertEquals("names",
+				network.parallelStream().map(node -> node.name_).collect(Collectors.joining(",")),
+				"Filip,n1,Hans,Andy");
+		assertTrue("sized", network.stream().spliterator().hasCharacteristics(Spliterator.SIZED));
+	}
+
 	/**
 	 * The function `requestWorkstationPrintsDocument` takes a workstation name, a document, a printer name and a report
 	 * writer as parameters and returns a boolean value
@@ -148,6 +222,841 @@ public class LANTests extends TestCase {
 		assertTrue("Broadcast ", network.requestBroadcast(report));
 	}
 
+	/**
+	 * The byte-oriented report written on a FileChannel is identical to the one written on a Writer.
+	 */
+	public void testChannelReport() throws IOException {
+		Network network = Network.DefaultExample();
+		StringWriter report = new StringWriter(500);
+		File file = File.createTempFile("lanReport", ".txt");
+
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			FileChannel channel = out.getChannel();
+
+			assertTrue("PrintSuccess ", network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", channel));
+			assertFalse("PrintFailure (UnkownPrinter) ",
+					network.requestWorkstationPrintsDocument("Filip", "Hello World", "UnknownPrinter", channel));
+			assertTrue("Broadcast ", network.requestBroadcast(channel));
+		}
+		network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+		network.requestWorkstationPrintsDocument("Filip", "Hello World", "UnknownPrinter", report);
+		network.requestBroadcast(report);
+
+		byte[] written = Files.readAllBytes(file.toPath());
+		file.delete();
+		assertEquals("channel report", new String(written, "UTF-8"), report.toString());
+	}
+
+	/**
+	 * Scenarios run in parallel produce their expected results, reported in the order they were added.
+	 */
+	public void testScenarioRunner() throws InterruptedException {
+		ScenarioRunner runner = new ScenarioRunner(Network::DefaultExample);
+		List<Scenario> scenarios = LANSimulation.defaultScenarios();
+
+		for (int i = 0; i < 10; i++) {
+			runner.addAll(scenarios);
+		}
+		List<ScenarioRunner.Outcome> outcomes = runner.run(4);
+		assertEquals("outcomes", outcomes.size(), 10 * scenarios.size());
+		for (int i = 0; i < outcomes.size(); i++) {
+			assertSame("order", outcomes.get(i).scenario_, scenarios.get(i % scenarios.size()));
+			assertTrue(outcomes.get(i).scenario_.name_, outcomes.get(i).asExpected());
+		}
+	}
+
+	/**
+	 * Early token release keeps the ring busier than releasing after the frame returned, and every frame is delivered.
+	 */
+	public void testTokenRing() {
+		TokenRingStatistics normal = loadedTokenRing(false).run();
+		TokenRingStatistics early = loadedTokenRing(true).run();
+
+		assertEquals("delivered (normal)", normal.delivered(0) + normal.delivered(5), 40);
+		assertEquals("delivered (early)", early.delivered(0) + early.delivered(5), 40);
+		assertTrue("utilisation (early > normal)", early.utilisation() > normal.utilisation());
+		assertTrue("utilisation <= 1", early.utilisation() <= 1.0);
+		assertTrue("rotation time", normal.meanRotationTime() >= 4);
+		assertTrue("priority latency", early.meanLatency(5) < early.meanLatency(0));
+	}
+
+	private TokenRing loadedTokenRing(boolean earlyRelease) {
+		TokenRing ring = new TokenRing(Network.DefaultExample(), 5, 2, 4, earlyRelease);
+
+		for (int i = 0; i < 20; i++) {
+			ring.submit("Filip", "Andy", 0, 0);
+			ring.submit("Hans", "Andy", 5, i);
+		}
+		return ring;
+	}
+
+	/**
+	 * Distance queries follow the direction in which packets travel, and are recomputed after a topology change.
+	 */
+	public void testDistanceQueries() {
+		Network network = Network.DefaultExample();
+
+		assertEquals("hopDistance Filip -> Andy", network.hopDistance("Filip", "Andy"), 3);
+		assertEquals("hopDistance Andy -> Filip", network.hopDistance("Andy", "Filip"), 1);
+		assertEquals("hopDistance Hans -> Hans", network.hopDistance("Hans", "Hans"), 0);
+		assertEquals("pathBetween", network.pathBetween("Hans", "Filip").toString(), "[Hans, Andy, Filip]");
+		assertEquals("nearestPrinters", network.nearestPrinters("Filip", 2).toString(), "[Andy]");
+
+		// take n1 off the ring
+		network.firstNode().nextNode_ = network.firstNode().nextNode_.nextNode_;
+		network.topologyChanged();
+		assertEquals("hopDistance Filip -> Andy (after change)", network.hopDistance("Filip", "Andy"), 2);
+	}
+
+	/**
+	 * The animation keeps no more than its maximum number of frames, however many packets travel, follows nodes
+	 * linked back in after it started, skips nodes off the ring and marks lost packets.
+	 */
+	public void testRingAnimation() {
+		Network network = Network.DefaultExample();
+		RingAnimation animation = new RingAnimation(network, 2, 3, 4);
+		Writer report = new StringWriter();
+		StringBuffer buf = new StringBuffer(500);
+
+		network.addObserver(animation);
+		for (int i = 0; i < 20; i++) {
+			network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+			network.requestBroadcast(report);
+		}
+		animation.finish();
+		assertTrue("frameCount", (animation.frameCount() > 1) & (animation.frameCount() <= 5));
+		assertTrue("sampleEvery", animation.sampleEvery() > 1);
+		animation.printHTMLOn(buf);
+		assertTrue("printHTMLOn", buf.indexOf("<svg") > 0);
+
+		network.fail("n1");
+		network.bypass("n1");
+		animation = new RingAnimation(network, 4, 3, 4);
+		network.addObserver(animation);
+		network.restore("n1");
+		assertTrue("Broadcast (restored after animation started)", network.requestBroadcast(report));
+		animation.packetPassed(new Node("stray"), null);
+		network.fail("Andy");
+		assertFalse("PrintFailure (printer failed) ",
+				network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+		animation.finish();
+		buf.setLength(0);
+		animation.printHTMLOn(buf);
+		assertTrue("printHTMLOn (lost)", buf.indexOf("fill=\"red\"") > 0);
+	}
+
+	/**
+	 * A failed node loses packets until the monitor detects it by the token not coming back and bypasses it, or sees
+	 * it passing packets again; lost requests are then retried.
+	 */
+	public void testRingRecovery() {
+		Network network = Network.DefaultExample();
+		RingMonitor monitor = new RingMonitor(network, 10);
+		StringWriter report = new StringWriter(500);
+
+		monitor.fail("n1");
+		assertFalse("PrintFailure (ring broken) ",
+				monitor.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+		assertTrue("report", report.toString().contains(">>> Token ring broken at 'n1', packet lost."));
+		assertEquals("lost", monitor.lost(), 1);
+		assertEquals("pendingRetries", monitor.pendingRetries(), 1);
+
+		monitor.advanceTo(5, report);
+		assertEquals("recoveries (before timeout)", monitor.recoveries(), 0);
+		monitor.advanceTo(10, report);
+		assertEquals("recoveries", monitor.recoveries(), 1);
+		assertEquals("meanRecoveryTime", monitor.meanRecoveryTime(), 10.0, 0.0);
+		assertEquals("retried", monitor.retried(), 1);
+		assertEquals("pendingRetries (after repair)", monitor.pendingRetries(), 0);
+		assertTrue("consistentNetwork (bypassed)", network.consistentNetwork());
+		assertEquals("hopDistance (bypassed)", network.hopDistance("Filip", "Andy"), 2);
+
+		monitor.fail("Hans");
+		monitor.advanceTo(20, report);
+		assertTrue("consistentNetwork (workstation bypassed)", network.consistentNetwork());
+		assertTrue("Broadcast (workstation bypassed)", network.requestBroadcast(report));
+
+		monitor.recover("Hans");
+		monitor.recover("n1");
+		assertTrue("consistentNetwork (recovered)", network.consistentNetwork());
+		assertEquals("toString (recovered)", network.toString(), Network.DefaultExample().toString());
+		network.fail("n1");
+		StringWriter unrelated = new StringWriter(500);
+		assertFalse("PrintFailure (failed behind the monitor's back) ",
+				network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", unrelated));
+		monitor.advanceTo(25, report);
+		assertEquals("recoveries (before timeout, observed loss)", monitor.recoveries(), 2);
+		monitor.advanceTo(30, report);
+		assertEquals("recoveries (observed loss)", monitor.recoveries(), 3);
+		assertEquals("maxRecoveryTime (observed loss)", monitor.maxRecoveryTime(), 10);
+		monitor.recover("n1");
+
+		network.fail("Hans");
+		monitor.advanceTo(40, report);
+		assertEquals("recoveries (token lost)", monitor.recoveries(), 4);
+		assertTrue("consistentNetwork (token lost)", network.consistentNetwork());
+		monitor.recover("Hans");
+
+		network.fail("Andy");
+		monitor.advanceTo(60, report);
+		assertEquals("recoveries (last printer)", monitor.recoveries(), 4);
+		assertTrue("consistentNetwork (last printer)", network.consistentNetwork());
+		assertFalse("PrintFailure (last printer) ",
+				monitor.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+		network.restore("Andy");
+		monitor.advanceTo(65, report);
+		assertEquals("recoveries (restored behind the monitor's back)", monitor.recoveries(), 5);
+		assertEquals("maxRecoveryTime (restored behind the monitor's back)", monitor.maxRecoveryTime(), 10);
+		assertEquals("meanRecoveryTime (all)", monitor.meanRecoveryTime(), (10 + 10 + 10 + 0 + 5) / 5.0, 0.0);
+		assertEquals("pendingRetries (restored behind the monitor's back)", monitor.pendingRetries(), 0);
+	}
+
+	/**
+	 * Only failed nodes are bypassed, and the last printer stays on the token ring. A bypassed first node is first
+	 * again once restored, and the ring index kept up to date by bypass and restore answers as a rebuilt one.
+	 */
+	public void testBypass() {
+		Network network = Network.DefaultExample();
+		StringWriter report = new StringWriter(500);
+
+		try {
+			network.bypass("Filip");
+			fail("bypassed a workstation that did not fail");
+		} catch (AssertionError exc) {
+			assertTrue("consistentNetwork (not failed)", network.consistentNetwork());
+		}
+		assertFalse("PrintFailure (unknown printer) ",
+				network.requestWorkstationPrintsDocument("Filip", "Hello World", "Nobody", report));
+
+		network.fail("Andy");
+		assertFalse("bypass (last printer)", network.bypass("Andy"));
+		assertTrue("consistentNetwork (last printer)", network.consistentNetwork());
+		assertEquals("toString (last printer)", network.toString(), Network.DefaultExample().toString());
+		assertFalse("PrintFailure (printer failed) ",
+				network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+
+		network = Network.DefaultExample();
+		network.fail("Filip");
+		assertTrue("bypass (first node)", network.bypass("Filip"));
+		assertEquals("firstNode (bypassed)", network.firstNode().name_, "n1");
+		network.restore("Filip");
+		assertEquals("toString (restored first node)", network.toString(), Network.DefaultExample().toString());
+
+		network = Network.RingExample(1000);
+		network.setDualRing(true);
+		List<String> bypassed = new ArrayList<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 300; i++) {
+			String name = (i % 100 == 0) ? network.firstNode().name_
+					: network.ringIndex().nodeAt(random.nextInt(network.ringIndex().size())).name_;
+			network.fail(name);
+			if (network.bypass(name)) {
+				bypassed.add(name);
+			} else {
+				network.restore(name);
+			}
+			if (i % 50 == 49) {
+				assertRebuiltRingIndex(network, random);
+			}
+		}
+		for (int i = bypassed.size() - 1; i >= 0; i--) {
+			network.restore(bypassed.get(i));
+			if (i % 50 == 0) {
+				assertRebuiltRingIndex(network, random);
+			}
+		}
+		assertEquals("toString (all restored)", network.toString(), Network.RingExample(1000).toString());
+	}
+
+	private void assertRebuiltRingIndex(Network network, Random random) {
+		RingIndex index = network.ringIndex(), rebuilt = new RingIndex(network.firstNode(), 1000);
+		assertEquals("size", index.size(), rebuilt.size());
+		assertEquals("printerCount", index.printerCount(), rebuilt.printerCount());
+		assertEquals("stream", network.stream().map(node -> node.name_).collect(Collectors.joining(",")),
+				StreamSupport.stream(rebuilt.spliterator(), false).map(node -> node.name_).collect(Collectors.joining(",")));
+		for (int i = 0; i < 20; i++) {
+			Node from = rebuilt.nodeAt(random.nextInt(rebuilt.size()));
+			Node to = rebuilt.nodeAt(random.nextInt(rebuilt.size()));
+			assertEquals("offsetOf", index.offsetOf(from), rebuilt.offsetOf(from));
+			assertSame("nodeAt", index.nodeAt(index.offsetOf(from)), from);
+			assertSame("previousOf", index.previousOf(from), rebuilt.previousOf(from));
+			assertEquals("hopDistance", index.hopDistance(from, to), rebuilt.hopDistance(from, to));
+			assertEquals("path", index.path(from, to), rebuilt.path(from, to));
+			assertEquals("nearestPrinters", index.nearestPrinters(from, 3), rebuilt.nearestPrinters(from, 3));
+			assertEquals("nearestPrinters (both ways)", index.nearestPrinters(from, 3, true),
+					rebuilt.nearestPrinters(from, 3, true));
+		}
+	}
+
+	/**
+	 * A flooding workstation does not starve a quiet one, and weights divide the network under overload.
+	 */
+	public void testPrintScheduler() {
+		Writer report = Writer.nullWriter();
+		PrintScheduler scheduler = new PrintScheduler(Network.DefaultExample(), 10, 2);
+
+		for (int i = 0; i < 100; i++) {
+			scheduler.submit("Filip", "0123456789", "Andy", 1, 0);
+		}
+		for (int i = 0; i < 10; i++) {
+			scheduler.submit("Hans", "0123456789", "Andy", 1, 0);
+		}
+		assertEquals("run", scheduler.run(report), 1100);
+		assertTrue("latency Hans", scheduler.latencyPercentile("Hans", 1.0) <= 200);
+		assertEquals("latency Filip", scheduler.latencyPercentile("Filip", 1.0), 1100);
+		assertEquals("share Hans", scheduler.share("Hans"), 10.0 / 110, 1e-9);
+
+		scheduler = new PrintScheduler(Network.DefaultExample(), 10, 2);
+		scheduler.setWeight("Filip", 3);
+		for (int i = 0; i < 40; i++) {
+			scheduler.submit("Filip", "0123456789", "Andy", 1, 0);
+			scheduler.submit("Hans", "0123456789", "Andy", 1, 0);
+		}
+		scheduler.submit("Hans", "urgent", "Andy", 0, 100);
+		scheduler.run(report);
+		assertEquals("latency Filip (weighted)", scheduler.latencyPercentile("Filip", 1.0), 536);
+		assertTrue("latency Hans (priority)", scheduler.latencyPercentile("Hans", 1.0 / 41) <= 16);
+	}
+
+	/**
+	 * In dual ring mode a packet takes the shorter direction, and wraps onto the other ring at a failed node.
+	 */
+	public void testDualRing() {
+		Network network = Network.DefaultExample();
+		StringWriter report = new StringWriter(500);
+
+		network.setDualRing(true);
+		assertTrue("isDualRing", network.isDualRing());
+		assertTrue("PrintSuccess (reverse) ", network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+		assertEquals("report (reverse)", report.toString(), "'Filip' requests printing of 'Hello World' on 'Andy' ...\n"
+				+ "\tNode 'Filip' passes packet on.\n"
+				+ "\tAccounting -- author = 'Unknown' -- title = 'ASCII DOCUMENT'\n>>> ASCII Print job delivered.\n\n");
+
+		network.fail("Andy");
+		report = new StringWriter(500);
+		assertFalse("PrintFailure (both rings broken) ",
+				network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+		assertTrue("report (wrapped)", report.toString().contains("packet wraps onto the other ring"));
+		assertTrue("report (lost)", report.toString().contains("packet lost"));
+
+		network.restore("Andy");
+		assertEquals("hopDistance (reverse)", network.hopDistance("Filip", "Andy"), 1);
+		assertEquals("pathBetween (reverse)", network.pathBetween("Filip", "Andy").toString(), "[Filip, Andy]");
+		network.setDualRing(false);
+		assertEquals("hopDistance", network.hopDistance("Filip", "Andy"), 3);
+		assertEquals("pathBetween", network.pathBetween("Filip", "Andy").toString(), "[Filip, n1, Hans, Andy]");
+		assertTrue("PrintSuccess (forward) ", network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report));
+
+		network = Network.RingExample(1000);
+		assertEquals("nearestPrinters", network.nearestPrinters("w0", 3).toString(), "[p5, p105, p205]");
+		network.setDualRing(true);
+		assertEquals("nearestPrinters (both rings)", network.nearestPrinters("w0", 3).toString(), "[p5, p905, p105]");
+		report = new StringWriter(500);
+		Map<String, Boolean> results = network.requestWorkstationMulticastsDocument("w0", "Hello World",
+				Arrays.asList("p805", "p905"), report);
+		assertEquals("multicast (reverse)", results.toString(), "{p805=true, p905=true}");
+		assertEquals("multicast hops (reverse)", report.toString().split("passes packet on").length - 1, 195);
+	}
+
+	/**
+	 * Job results are recorded next to another observer, and written in the columnar format read back unchanged, also
+	 * row by row across row groups; the CSV fallback has one line per job.
+	 */
+	public void testJobResults() throws IOException {
+		Network network = Network.DefaultExample();
+		ByteArrayOutputStream columnar = new ByteArrayOutputStream(), csv = new ByteArrayOutputStream();
+		List<JobResult> results = new ArrayList<>();
+		JobResultWriter collect = new JobResultWriter() {
+			public void write(JobResult result) {
+				results.add(result);
+			}
+
+			public void close() {
+			}
+		};
+		RingAnimation animation = new RingAnimation(network, 2, 1, 100);
+		network.addObserver(animation);
+		JobResultRecorder recorder = new JobResultRecorder(network, collect);
+		Writer report = new StringWriter(500);
+
+		recorder.requestWorkstationPrintsDocument("Filip", "!PS Hello World in postscript.author:Filip.title:Hello.",
+				"Andy", report);
+		recorder.requestWorkstationPrintsDocument("Filip", "Hello World", "UnknownPrinter", report);
+		recorder.requestWorkstationPrintsDocument("Filip", "Hello World", "Hans", report);
+		recorder.close();
+		network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+		assertEquals("results", results.size(), 3);
+		assertEquals("animated next to the recorder", animation.frameCount(), 4 + 5 + 3 + 4);
+		assertEquals("outcome", results.get(0).outcome_, JobResult.Outcome.DELIVERED);
+		assertEquals("hops", results.get(0).hops_, 3);
+		assertEquals("author", results.get(0).author_, "Filip");
+		assertEquals("outcome (unknown)", results.get(1).outcome_, JobResult.Outcome.NOT_FOUND);
+		assertEquals("outcome (workstation)", results.get(2).outcome_, JobResult.Outcome.NOT_A_PRINTER);
+
+		JobResultWriter writer = new ColumnarJobResultWriter(columnar);
+		JobResultWriter fallback = new CsvJobResultWriter(csv);
+		for (JobResult result : results) {
+			writer.write(result);
+			fallback.write(result);
+		}
+		writer.close();
+		fallback.close();
+		ColumnarJobResultReader reader = new ColumnarJobResultReader(new ByteArrayInputStream(columnar.toByteArray()));
+		assertEquals("columnar", reader.readAll(), results);
+		assertEquals("csv lines", csv.toString("UTF-8").split("\n").length, 4);
+
+		columnar.reset();
+		writer = new ColumnarJobResultWriter(columnar);
+		for (int i = 0; i < 100000; i++) {
+			JobResult result = results.get(i % results.size());
+			writer.write(new JobResult(i, result.origin_, result.destination_, result.hops_, result.outcome_,
+					result.documentType_, result.author_, result.title_, result.nanos_));
+		}
+		writer.close();
+		try (ColumnarJobResultReader rows = new ColumnarJobResultReader(
+				new ByteArrayInputStream(columnar.toByteArray()))) {
+			JobResult row;
+			int count = 0;
+			while ((row = rows.read()) != null) {
+				assertEquals("row id", row.id_, count);
+				assertEquals("row outcome", row.outcome_, results.get(count % results.size()).outcome_);
+				count++;
+			}
+			assertEquals("rows", count, 100000);
+			assertNull("ended", rows.read());
+		}
+	}
+
+	/**
+	 * A multicast reaches all its printers in one traversal, stopping at the last one, and reports per printer.
+	 */
+	public void testMulticast() {
+		Network network = Network.DefaultExample();
+		StringWriter report = new StringWriter(500);
+		Map<String, Boolean> results = network.requestWorkstationMulticastsDocument("Filip",
+				"!PS Hello World in postscript.author:Filip.title:Hello.",
+				Arrays.asList("Andy", "Hans", "UnknownPrinter"), report);
+
+		assertEquals("Andy", results.get("Andy"), Boolean.TRUE);
+		assertEquals("Hans (workstation)", results.get("Hans"), Boolean.FALSE);
+		assertEquals("UnknownPrinter", results.get("UnknownPrinter"), Boolean.FALSE);
+		assertEquals("stops at last printer", report.toString().split("passes packet on").length - 1, 3);
+		assertTrue("accounting", report.toString().contains("Accounting -- author = 'Filip' -- title = 'Hello'"));
+		assertTrue("not found", report.toString().contains(">>> Destinition 'UnknownPrinter' not found"));
+
+		network.fail("Andy");
+		results = network.requestWorkstationMulticastsDocument("Filip", "Hello World",
+				Arrays.asList("Andy"), new StringWriter(500));
+		assertEquals("lost", results.get("Andy"), Boolean.FALSE);
+	}
+
+	/**
+	 * Generated rings are consistent, growth is fitted as a power of the ring size, and an operation growing faster
+	 * than its baseline is reported.
+	 */
+	public void testScalingHarness() throws IOException {
+		Network network = Network.RingExample(1000);
+		assertTrue("consistent", network.consistentNetwork());
+		assertEquals("hops", network.hopDistance("w0", "p905"), 905);
+
+		List<Integer> sizes = Arrays.asList(1000, 10000, 100000);
+		List<Long> quadratic = Arrays.asList(1000000L, 100000000L, 10000000000L);
+		assertEquals("quadratic", Math.round(ScalingHarness.exponent(sizes, quadratic) * 100), 200L);
+
+		ScalingHarness harness = new ScalingHarness();
+		Properties baseline = new Properties();
+		StringBuffer buf = new StringBuffer();
+		assertEquals("peak heap measured", harness.measure(1000).get(0).peakHeapBytes_.size(), 3);
+		baseline.setProperty("printOn.allocationExponent", "0.0");
+		assertFalse("regression", harness.compareWith(baseline, buf));
+		assertTrue("reported", buf.toString().startsWith("REGRESSION printOn: allocationExponent"));
+
+		Locale locale = Locale.getDefault();
+		ByteArrayOutputStream stored = new ByteArrayOutputStream();
+		try {
+			Locale.setDefault(Locale.GERMANY);
+			harness.storeBaseline(stored);
+			baseline = new Properties();
+			baseline.load(new ByteArrayInputStream(stored.toByteArray()));
+			assertTrue("baseline (comma locale)", harness.compareWith(baseline, new StringBuffer()));
+			assertTrue("peak heap stored", baseline.getProperty("printOn.peakHeapPerNode").contains("."));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	/**
+	 * Requests reuse their packets, so a hop allocates nothing. Assertions check the whole network on every request,
+	 * so the lanSimulation classes are measured in a class loader of their own with assertions disabled.
+	 */
+	public void testAllocationFreeHops() throws Exception {
+		String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+		URL[] classpath = new URL[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			classpath[i] = new File(entries[i]).toURI().toURL();
+		}
+		try (URLClassLoader loader = new URLClassLoader(classpath, ClassLoader.getPlatformClassLoader())) {
+			loader.setPackageAssertionStatus("lanSimulation", false);
+			Class<?> harness = loader.loadClass("lanSimulation.ScalingHarness");
+			double bytesPerHop = (Double) harness.getMethod("allocatedBytesPerHop", int.class).invoke(null, 100000);
+			assertTrue("bytes per hop: " + bytesPerHop, bytesPerHop < 0.1);
+		}
+	}
+
+	/**
+	 * Pipelined requests sent to a RequestServer all get their own response, each with the report of its request, also
+	 * when handling the request failed; a client that does not read its responses does not hold up the others.
+	 */
+	public void testRequestServer() throws Exception {
+		try (RequestServer server = new RequestServer(Network.DefaultExample(), RequestServer.addressFor("0"))) {
+			server.start();
+			try (RequestClient client = new RequestClient(server.address())) {
+				CompletableFuture<RequestClient.Response> printed, cancelled, broadcast, rejected;
+				printed = client.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy");
+				cancelled = client.requestWorkstationPrintsDocument("Filip", "Hello World", "Hans");
+				broadcast = client.requestBroadcast();
+				rejected = client.requestWorkstationPrintsDocument("Unknown", "Hello World", "Andy");
+
+				assertTrue("printed", printed.get(10, TimeUnit.SECONDS).succeeded_);
+				assertTrue("report", printed.get().report_.contains(">>> ASCII Print job delivered."));
+				assertFalse("cancelled", cancelled.get(10, TimeUnit.SECONDS).succeeded_);
+				assertTrue("broadcast", broadcast.get(10, TimeUnit.SECONDS).succeeded_);
+				try {
+					rejected.get(10, TimeUnit.SECONDS);
+					fail("unknown workstation accepted");
+				} catch (ExecutionException exc) {
+					assertTrue("rejected", exc.getCause() instanceof IllegalArgumentException);
+				}
+			}
+		}
+
+		Network network = Network.RingExample(1000);
+		try (RequestServer server = new RequestServer(network, RequestServer.addressFor("0"))) {
+			server.start();
+			try (SocketChannel silent = SocketChannel.open(server.address());
+					RequestClient client = new RequestClient(server.address())) {
+				ByteBuffer request = ByteBuffer.allocate(4 + 4 + 1);
+				silent.configureBlocking(false);
+				for (int i = 0; i < 1000; i++) {
+					request.clear();
+					request.putInt(5).putInt(i).put(RequestServer.BROADCAST).flip();
+					if (silent.write(request) < request.capacity()) {
+						break;
+					}
+				}
+				assertTrue("not held up by a client not reading",
+						client.requestBroadcast().get(10, TimeUnit.SECONDS).succeeded_);
+
+				Node first = network.firstNode(), next = first.nextNode_;
+				first.nextNode_ = null;
+				CompletableFuture<RequestClient.Response> failed = client.requestBroadcast();
+				try {
+					failed.get(10, TimeUnit.SECONDS);
+					fail("broken ring accepted");
+				} catch (ExecutionException exc) {
+					assertTrue("failed", exc.getCause().getMessage().startsWith("Request failed"));
+				} finally {
+					first.nextNode_ = next;
+				}
+				assertTrue("served after failure",
+						client.requestBroadcast().get(10, TimeUnit.SECONDS).succeeded_);
+			}
+		}
+
+		File socket = new File(Files.createTempDirectory("lanServer").toFile(), "lan.sock");
+		try (ServerSocketChannel crashed = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			crashed.bind(RequestServer.addressFor(socket.getPath()));
+		}
+		assertTrue("stale socket left", socket.exists());
+		try (RequestServer server = new RequestServer(Network.DefaultExample(), RequestServer.addressFor(socket.getPath()))) {
+			server.start();
+			try (RequestClient client = new RequestClient(server.address())) {
+				assertTrue("served on stale socket",
+						client.requestBroadcast().get(10, TimeUnit.SECONDS).succeeded_);
+			}
+		}
+		assertFalse("socket deleted", socket.exists());
+		socket.getParentFile().delete();
+	}
+
+	/**
+	 * Each report verbosity writes the expected hops, and the channel variant writes the same report as the writer.
+	 */
+	public void testReportVerbosity() throws IOException {
+		Network network = Network.RingExample(1000);
+		StringWriter report;
+
+		assertEquals("default", network.reportVerbosity(), ReportVerbosity.FULL);
+		report = new StringWriter(50000);
+		network.requestWorkstationPrintsDocument("w0", "Hello World", "p905", report);
+		assertEquals("full", report.toString().split("passes packet on").length - 1, 905);
+
+		network.setReportVerbosity(ReportVerbosity.COLLAPSED);
+		report = new StringWriter(500);
+		network.requestWorkstationPrintsDocument("w0", "Hello World", "p905", report);
+		network.requestBroadcast(report);
+		assertTrue("collapsed", report.toString().contains("\tPacket passes through 905 nodes, from 'w0' to 'n904'.\n"));
+		assertTrue("collapsed broadcast", report.toString()
+				.contains("\tBroadcast packet accepted by and passes through 1,000 nodes, from 'w0' to 'n999'.\n"));
+
+		File file = File.createTempFile("lanReport", ".txt");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			network.requestWorkstationPrintsDocument("w0", "Hello World", "p905", out.getChannel());
+			network.requestBroadcast(out.getChannel());
+		}
+		byte[] written = Files.readAllBytes(file.toPath());
+		file.delete();
+		assertEquals("collapsed channel", new String(written, "UTF-8"), report.toString());
+
+		network.setReportVerbosity(ReportVerbosity.SAMPLED);
+		network.setReportSampling(100);
+		assertEquals("sampling", network.reportSampling(), 100);
+		report = new StringWriter(5000);
+		network.requestWorkstationPrintsDocument("w0", "Hello World", "p905", report);
+		assertEquals("sampled", report.toString().split("passes packet on").length - 1, 10);
+		assertTrue("sampled summary", report.toString().contains("905 nodes, from 'w0' to 'n904', 1 in 100 reported."));
+
+		network.setReportVerbosity(ReportVerbosity.OUTCOME_ONLY);
+		report = new StringWriter(500);
+		assertTrue("outcome only", network.requestWorkstationPrintsDocument("w0", "Hello World", "p905", report));
+		assertFalse("no hops", report.toString().contains("pass"));
+		assertTrue("outcome", report.toString().contains(">>> ASCII Print job delivered."));
+	}
+
+	/**
+	 * A rotating report decompresses to the same text as a plain one, its index lists the segments kept up to the last
+	 * write, and #flush hands over the text at once.
+	 */
+	public void testRotatingReport() throws IOException {
+		Network network = Network.RingExample(1000);
+		StringWriter expected = new StringWriter(500000);
+		File directory = Files.createTempDirectory("lanReport").toFile();
+		RotatingReportWriter report = new RotatingReportWriter(directory, "all", 10000, 3600000, 0);
+		RotatingReportWriter recent = new RotatingReportWriter(directory, "recent", 10000, 3600000, 2);
+
+		long lastWrite = 0;
+
+		for (int i = 0; i < 20; i++) {
+			lastWrite = System.currentTimeMillis();
+			network.requestWorkstationPrintsDocument("w0", "Hello World " + i, "p905", expected);
+			network.requestWorkstationPrintsDocument("w0", "Hello World " + i, "p905", report.batching());
+			network.requestWorkstationPrintsDocument("w0", "Hello World " + i, "p905", recent.batching());
+		}
+		report.close();
+		recent.close();
+
+		List<RotatingReportWriter.Segment> segments = RotatingReportWriter.segments(directory, "all");
+		StringBuilder text = new StringBuilder();
+		long offset = 0;
+		for (RotatingReportWriter.Segment segment : segments) {
+			assertEquals("offset", segment.offset_, offset);
+			offset += segment.bytes_;
+			try (Reader in = segment.openReader()) {
+				char[] buf = new char[8192];
+				for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+					text.append(buf, 0, n);
+				}
+			}
+		}
+		assertTrue("rotated", segments.size() > 1);
+		assertTrue("toMillis", segments.get(segments.size() - 1).toMillis_ >= lastWrite);
+		assertEquals("text", text.toString(), expected.toString());
+		assertEquals("window", RotatingReportWriter
+				.segmentsBetween(directory, "all", segments.get(0).fromMillis_, segments.get(0).toMillis_).size() > 0,
+				true);
+
+		List<RotatingReportWriter.Segment> kept = RotatingReportWriter.segments(directory, "recent");
+		assertEquals("kept", kept.size(), 2);
+		assertEquals("last kept", kept.get(1).offset_ + kept.get(1).bytes_, offset);
+		assertEquals("files", directory.list().length, segments.size() + 1 + 2 + 1);
+
+		RotatingReportWriter flushed = new RotatingReportWriter(directory, "flushed", 10000, 1, 0);
+		flushed.write("first\n");
+		flushed.flush();
+		sleep(5);
+		flushed.write("second\n");
+		flushed.close();
+		assertEquals("flushed", RotatingReportWriter.segments(directory, "flushed").size(), 2);
+
+		RotatingReportWriter idle = new RotatingReportWriter(directory, "idle", 10000, 50, 0);
+		File idleSegment = new File(directory, "idle.000000.gz");
+		idle.write("pending\n");
+		idle.flush();
+		for (int i = 0; (i < 1000) && !readTruncated(idleSegment).equals("pending\n"); i++) {
+			sleep(10);
+		}
+		assertEquals("readable while written", readTruncated(idleSegment), "pending\n");
+		for (int i = 0; (i < 1000) && !new File(directory, "idle.index").exists(); i++) {
+			sleep(10);
+		}
+		assertEquals("finished while idle", RotatingReportWriter.segments(directory, "idle").size(), 1);
+		idle.close();
+		for (File each : directory.listFiles()) {
+			each.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Answer the text of the gzip #file, up to where it is truncated.
+	 */
+	private static String readTruncated(File file) throws IOException {
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		if (file.length() == 0) {
+			return "";
+		}
+		try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+			for (int b = in.read(); b >= 0; b = in.read()) {
+				text.write(b);
+			}
+		} catch (EOFException exc) {
+			// just ignore, the trailer is not written yet
+		}
+		return text.toString("UTF-8");
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A simulation halted halfway and resumed from its latest checkpoint ends with the same report and counters as
+	 * one run without interruption, and a directory reused starts afresh; a network rebuilt from a snapshot equals the
+	 * original.
+	 */
+	public void testCheckpointResume() throws IOException {
+		Network network = Network.DefaultExample();
+		network.fail("Hans");
+		network.fail("n1");
+		network.bypass("n1");
+		Network rebuilt = Network.fromSnapshot(network.snapshot());
+		assertEquals("snapshot", rebuilt.toString(), network.toString());
+		NetworkSnapshot snapshot = rebuilt.snapshot();
+		int n1 = 1, hans = 2;
+		assertEquals("n1", snapshot.names_[n1], "n1");
+		assertTrue("bypassed", snapshot.bypassed_[n1] & snapshot.failed_[n1]);
+		assertEquals("bypassed links", snapshot.next_[n1], hans);
+		assertEquals("ring links", rebuilt.firstNode().nextNode_.name_, "Hans");
+		assertSame("ring links (reverse)", rebuilt.firstNode().nextNode_.previousNode_, rebuilt.firstNode());
+		long version = network.topologyVersion();
+		network.setReportVerbosity(ReportVerbosity.OUTCOME_ONLY);
+		assertTrue("topologyVersion (verbosity)", network.topologyVersion() > version);
+
+		File uninterrupted = Files.createTempDirectory("lanRun").toFile();
+		File interrupted = Files.createTempDirectory("lanRun").toFile();
+		CheckpointedSimulation simulation;
+		StringBuffer expected = new StringBuffer(), resumed = new StringBuffer();
+
+		simulation = CheckpointedSimulation.start(uninterrupted, Network.DefaultExample(),
+				LANSimulation.defaultJobs(5), 4);
+		simulation.run();
+		simulation.printSummaryOn(expected);
+
+		simulation = CheckpointedSimulation.start(interrupted, Network.DefaultExample(), LANSimulation.defaultJobs(5),
+				4);
+		simulation.halt();
+		assertFalse("first checkpoint", simulation.run(4));
+		simulation.halt();
+		assertFalse("halfway", simulation.run(19));
+		simulation.halt();
+		simulation = CheckpointedSimulation.resume(interrupted, 4);
+		assertTrue("resumed from a checkpoint", (simulation.jobsDone() >= 4) & (simulation.jobsDone() <= 23));
+		simulation.run();
+		simulation.printSummaryOn(resumed);
+
+		assertEquals("summary", resumed.toString(), expected.toString());
+		assertEquals("report", new String(Files.readAllBytes(new File(interrupted, "report.txt").toPath()),
+				"UTF-8"), new String(Files.readAllBytes(new File(uninterrupted, "report.txt").toPath()),
+						"UTF-8"));
+
+		simulation = CheckpointedSimulation.start(interrupted, Network.DefaultExample(), LANSimulation.defaultJobs(1),
+				4);
+		simulation.halt();
+		simulation = CheckpointedSimulation.resume(interrupted, 4);
+		resumed = new StringBuffer();
+		simulation.printSummaryOn(resumed);
+		assertEquals("directory reused", resumed.toString(),
+				"jobs: 0 of 9, printed: 0, not printed: 0, broadcasts: 0\n");
+		simulation.finish();
+		for (File directory : new File[] { uninterrupted, interrupted }) {
+			for (File each : directory.listFiles()) {
+				each.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	/**
+	 * With all lanSimulation events enabled, a recording attributes hops and deliveries to the right nodes.
+	 */
+	public void testFlightRecording() throws IOException {
+		Network network = Network.DefaultExample();
+		Writer report = new StringWriter(500);
+		File file = File.createTempFile("lanSimulation", ".jfr");
+		int sampling = PacketHopEvent.sampling();
+
+		try (Recording recording = new Recording()) {
+			recording.enable(PacketHopEvent.class);
+			recording.enable(DeliveryEvent.class).withThreshold(Duration.ZERO);
+			recording.enable(BroadcastEvent.class).withThreshold(Duration.ZERO);
+			recording.enable(AccountingEvent.class).withThreshold(Duration.ZERO);
+			PacketHopEvent.setSampling(1);
+			recording.start();
+			network.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+			network.requestBroadcast(report);
+			recording.stop();
+			recording.dump(file.toPath());
+		} finally {
+			PacketHopEvent.setSampling(sampling);
+		}
+
+		HotSpotAnalyser analyser = HotSpotAnalyser.analyse(file.toPath());
+		StringBuffer buf = new StringBuffer();
+		analyser.printOn(buf);
+		file.delete();
+		assertEquals("deliveries at Andy", analyser.deliveriesAt("Andy"), 1L);
+		assertEquals("hops at Hans", analyser.hopsAt("Hans"), 2L);
+		assertTrue("broadcasts", buf.toString().contains("broadcasts: 1"));
+	}
+
+	/**
+	 * Requests recorded through a TraceRecorder replay with the same results and reports, sequentially and
+	 * partitioned; a different result or a different report is counted as a mismatch.
+	 */
+	public void testTraceReplay() throws Exception {
+		Network network = Network.DefaultExample();
+		StringWriter report = new StringWriter(500);
+		ByteArrayOutputStream trace = new ByteArrayOutputStream();
+		TraceRecorder recorder = new TraceRecorder(network, trace);
+
+		recorder.requestWorkstationPrintsDocument("Filip", "Hello World", "Andy", report);
+		recorder.requestWorkstationPrintsDocument("Hans", "!PS Hello World in postscript", "Filip", report);
+		recorder.requestWorkstationPrintsDocument("Filip", "Hello World", "UnknownPrinter", report);
+		recorder.requestBroadcast(report);
+		assertEquals("recorded", recorder.recorded(), 4);
+		recorder.close();
+
+		TraceReplayer replayer = new TraceReplayer(new ByteArrayInputStream(trace.toByteArray()));
+		assertEquals("size", replayer.size(), 4);
+		StringWriter replayed = new StringWriter(500);
+		assertEquals("mismatches (sequential)", replayer.replay(Network.DefaultExample(), replayed), 0);
+		assertEquals("report (sequential)", replayed.toString(), report.toString());
+		replayed = new StringWriter(500);
+		assertEquals("mismatches (partitioned)", replayer.replayPartitioned(Network::DefaultExample, 2, replayed), 0);
+		assertEquals("report length (partitioned)", replayed.toString().length(), report.toString().length());
+
+		Network failed = Network.DefaultExample();
+		failed.fail("Andy");
+		assertEquals("mismatches (Andy failed)", replayer.replay(failed, new StringWriter()), 4);
+		Network dualRing = Network.DefaultExample();
+		dualRing.setDualRing(true);
+		assertEquals("mismatches (same results, other route)", replayer.replay(dualRing, new StringWriter()), 1);
+	}
+
 	/**
 	 * Test whether output routines work as expected. This is done by comparing
 	 * generating output on a file "useOutput.txt" and comparing it to a file